@@ -1,6 +1,7 @@
 package aysta3045;
 
 import aysta3045.command.*;
+import aysta3045.compat.FtbTeamsBridge;
 import aysta3045.screen.CompetitionScreenHandler;
 import aysta3045.screen.CompetitionManagementScreenHandler;
 import net.fabricmc.api.ModInitializer;
@@ -52,12 +53,42 @@ public class Competition implements ModInitializer {
 		// 初始化命令拦截器
 		CommandBlocker.initialize();
 
+		// 初始化比赛定时任务调度器（服务器主线程tick驱动）
+		CompetitionScheduler.initialize();
+
+		// 注册成就事件监听（末地门框架监听、末影龙击杀监听）
+		EndPortalMonitorCommand.initialize();
+		EndCompetitionOnDragonKillCommand.initialize();
+
+		// 比赛进入进行阶段时自动开始倒计时
+		CountdownCommand.initialize();
+
+		// 跟踪玩家上下线，维护分组索引中的在线成员
+		TeamSetCommand.initialize();
+
+		// 可选的 FTB Teams 小队同步
+		FtbTeamsBridge.initialize();
+
+		// 准备阶段的玩家冻结（移动和交互拦截、客户端黑屏数据包）
+		PlayerFreeze.initialize();
+
+		// 准备阶段和启动流程的玩家状态快照（取消启动时回滚）
+		PlayerSnapshots.initialize();
+
+		// 比赛状态持久化（必须在下面的清理之前注册，关服时先保存再清理）
+		CompetitionState.initialize();
+
+		// 准备区域（在比赛状态恢复之后按阶段固定区块）
+		StagingArea.initialize();
+
 		// 注册服务器停止事件，清理倒计时资源
 		ServerLifecycleEvents.SERVER_STOPPING.register(server -> {
 			CountdownCommand.cleanup();
 			StartCompetitionCommand.onServerStop();
 			EndCompetitionOnDragonKillCommand.onServerStop();
 			EndPortalMonitorCommand.onServerStop();
+			CompetitionScheduler.onServerStop();
+			CompetitionLifecycle.onServerStop();
 		});
 
 		LOGGER.info("AYSTA3045 控制系统已加载完成");
@@ -1,11 +1,21 @@
 package aysta3045;
 
+import aysta3045.command.PlayerFreeze;
 import aysta3045.screen.CompetitionScreen;
 import aysta3045.screen.CompetitionManagementScreen;
 import net.fabricmc.api.ClientModInitializer;
+import net.fabricmc.fabric.api.client.networking.v1.ClientPlayConnectionEvents;
+import net.fabricmc.fabric.api.client.networking.v1.ClientPlayNetworking;
+import net.fabricmc.fabric.api.client.rendering.v1.HudRenderCallback;
+import net.minecraft.client.MinecraftClient;
 import net.minecraft.client.gui.screen.ingame.HandledScreens;
+import net.minecraft.text.Text;
 
 public class CompetitionClient implements ClientModInitializer {
+
+    // 准备阶段被冻结时全屏黑屏
+    private static boolean frozen = false;
+
     @Override
     public void onInitializeClient() {
         // 注册比赛管理屏幕
@@ -20,6 +30,26 @@ public class CompetitionClient implements ClientModInitializer {
                 CompetitionManagementScreen::new
         );
 
+        // 准备阶段冻结：服务器只发送一个数据包，黑屏在客户端绘制
+        ClientPlayNetworking.registerGlobalReceiver(PlayerFreeze.FrozenPayload.ID,
+                (payload, context) -> frozen = payload.frozen());
+        ClientPlayConnectionEvents.DISCONNECT.register((handler, client) -> frozen = false);
+
+        HudRenderCallback.EVENT.register((drawContext, tickCounter) -> {
+            if (!frozen) {
+                return;
+            }
+
+            MinecraftClient client = MinecraftClient.getInstance();
+            int width = drawContext.getScaledWindowWidth();
+            int height = drawContext.getScaledWindowHeight();
+            drawContext.fill(0, 0, width, height, 0xFF000000);
+            drawContext.drawCenteredTextWithShadow(client.textRenderer,
+                    Text.literal("§c§l准备阶段"), width / 2, height / 2 - 10, 0xFFFFFF);
+            drawContext.drawCenteredTextWithShadow(client.textRenderer,
+                    Text.literal("§7请等待裁判"), width / 2, height / 2 + 4, 0xFFFFFF);
+        });
+
         Competition.LOGGER.info("Competition client initialized!");
     }
-}
\ No newline at end of file
+}
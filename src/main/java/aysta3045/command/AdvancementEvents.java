@@ -0,0 +1,42 @@
+package aysta3045.command;
+
+import net.fabricmc.fabric.api.event.Event;
+import net.fabricmc.fabric.api.event.EventFactory;
+import net.minecraft.advancement.AdvancementEntry;
+import net.minecraft.server.network.ServerPlayerEntity;
+
+/**
+ * 成就事件
+ * 由 PlayerAdvancementTrackerMixin 在成就完成或被撤销的当tick触发，替代每秒轮询成就进度
+ */
+public final class AdvancementEvents {
+
+    // 玩家完成某个成就（最后一个条件达成时触发一次）
+    public static final Event<Completed> COMPLETED = EventFactory.createArrayBacked(Completed.class,
+            listeners -> (player, advancement) -> {
+                for (Completed listener : listeners) {
+                    listener.onCompleted(player, advancement);
+                }
+            });
+
+    // 玩家已完成的成就被撤销
+    public static final Event<Revoked> REVOKED = EventFactory.createArrayBacked(Revoked.class,
+            listeners -> (player, advancement) -> {
+                for (Revoked listener : listeners) {
+                    listener.onRevoked(player, advancement);
+                }
+            });
+
+    private AdvancementEvents() {
+    }
+
+    @FunctionalInterface
+    public interface Completed {
+        void onCompleted(ServerPlayerEntity player, AdvancementEntry advancement);
+    }
+
+    @FunctionalInterface
+    public interface Revoked {
+        void onRevoked(ServerPlayerEntity player, AdvancementEntry advancement);
+    }
+}
@@ -3,6 +3,10 @@ package aysta3045.command;
 import com.mojang.brigadier.CommandDispatcher;
 import com.mojang.brigadier.context.CommandContext;
 import net.minecraft.command.argument.EntityArgumentType;
+import net.minecraft.nbt.NbtCompound;
+import net.minecraft.nbt.NbtElement;
+import net.minecraft.nbt.NbtHelper;
+import net.minecraft.nbt.NbtList;
 import net.minecraft.server.command.CommandManager;
 import net.minecraft.server.command.ServerCommandSource;
 import net.minecraft.server.network.ServerPlayerEntity;
@@ -61,12 +65,35 @@ public class CloseCommandsCommand {
     // 重置所有被禁用的玩家
     public static void resetAll() {
         disabledPlayers.clear();
+        CompetitionState.markChanged();
+    }
+
+    // 保存被禁用的玩家列表
+    static NbtCompound writeState() {
+        NbtList players = new NbtList();
+        for (UUID playerId : disabledPlayers.keySet()) {
+            players.add(NbtHelper.fromUuid(playerId));
+        }
+
+        NbtCompound nbt = new NbtCompound();
+        nbt.put("players", players);
+        return nbt;
+    }
+
+    static void readState(NbtCompound nbt) {
+        disabledPlayers.clear();
+
+        NbtList players = nbt.getList("players", NbtElement.INT_ARRAY_TYPE);
+        for (NbtElement element : players) {
+            disabledPlayers.put(NbtHelper.toUuid(element), true);
+        }
     }
 
     // 恢复指定玩家的权限
     public static boolean restorePlayer(ServerPlayerEntity player) {
         if (player != null && disabledPlayers.containsKey(player.getUuid())) {
             disabledPlayers.remove(player.getUuid());
+            CompetitionState.markChanged();
             return true;
         }
         return false;
@@ -88,6 +115,7 @@ public class CloseCommandsCommand {
             if (target != sender && !disabledPlayers.containsKey(target.getUuid())) {
                 // 1. 添加到禁用列表
                 disabledPlayers.put(target.getUuid(), true);
+                CompetitionState.markChanged();
 
                 // 2. 从OP列表中移除玩家
                 source.getServer().getPlayerManager().removeFromOperators(target.getGameProfile());
@@ -178,6 +206,7 @@ public class CloseCommandsCommand {
             if (disabledPlayers.containsKey(target.getUuid())) {
                 // 1. 从禁用列表中移除
                 disabledPlayers.remove(target.getUuid());
+                CompetitionState.markChanged();
 
                 // 2. 重新添加为OP
                 source.getServer().getPlayerManager().addToOperators(target.getGameProfile());
@@ -236,6 +265,7 @@ public class CloseCommandsCommand {
             if (disabledPlayers.containsKey(target.getUuid())) {
                 // 1. 从禁用列表中移除
                 disabledPlayers.remove(target.getUuid());
+                CompetitionState.markChanged();
 
                 // 2. 重新添加为OP
                 source.getServer().getPlayerManager().addToOperators(target.getGameProfile());
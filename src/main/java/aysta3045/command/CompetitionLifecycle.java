@@ -0,0 +1,149 @@
+package aysta3045.command;
+
+import net.fabricmc.fabric.api.event.Event;
+import net.fabricmc.fabric.api.event.EventFactory;
+import net.minecraft.nbt.NbtCompound;
+import net.minecraft.server.MinecraftServer;
+import net.minecraft.text.Text;
+
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * 比赛生命周期状态机
+ * 当前阶段和各监听的运行状态保存在同一个不可变快照中，整体原子替换；
+ * 阶段转换使用 compare-and-set，只有当前阶段与预期一致时才会成功，成功后在调用线程上通知监听器
+ */
+public final class CompetitionLifecycle {
+
+    /**
+     * 比赛状态快照（不可变）
+     */
+    public record Snapshot(CompetitionPhase phase, boolean countdownRunning,
+                           boolean portalMonitorRunning, boolean dragonMonitorRunning) {
+
+        Snapshot withPhase(CompetitionPhase newPhase) {
+            return new Snapshot(newPhase, countdownRunning, portalMonitorRunning, dragonMonitorRunning);
+        }
+    }
+
+    private static final Snapshot INITIAL = new Snapshot(CompetitionPhase.IDLE, false, false, false);
+
+    private static final AtomicReference<Snapshot> snapshot = new AtomicReference<>(INITIAL);
+
+    // 阶段转换成功后触发，各模块在这里启动或停止自己的监听和任务
+    public static final Event<PhaseChanged> PHASE_CHANGED = EventFactory.createArrayBacked(PhaseChanged.class,
+            listeners -> (server, previous, next) -> {
+                for (PhaseChanged listener : listeners) {
+                    listener.onPhaseChanged(server, previous, next);
+                }
+            });
+
+    private CompetitionLifecycle() {
+    }
+
+    @FunctionalInterface
+    public interface PhaseChanged {
+        void onPhaseChanged(MinecraftServer server, CompetitionPhase previous, CompetitionPhase next);
+    }
+
+    /**
+     * 当前状态快照，GUI和命令只读取这一个对象
+     */
+    public static Snapshot snapshot() {
+        return snapshot.get();
+    }
+
+    public static CompetitionPhase getPhase() {
+        return snapshot.get().phase();
+    }
+
+    /**
+     * 从预期阶段转换到目标阶段
+     *
+     * @return 当前阶段不是预期阶段时返回false，不做任何修改
+     * @throws IllegalStateException 转换本身不合法时
+     */
+    public static boolean transition(MinecraftServer server, CompetitionPhase expected, CompetitionPhase next) {
+        if (!expected.canTransitionTo(next)) {
+            throw new IllegalStateException("不允许的比赛阶段转换: " + expected + " -> " + next);
+        }
+
+        while (true) {
+            Snapshot current = snapshot.get();
+            if (current.phase() != expected) {
+                return false;
+            }
+
+            // 只有监听状态被并发修改时才会重试
+            if (snapshot.compareAndSet(current, current.withPhase(next))) {
+                break;
+            }
+        }
+
+        CompetitionState.markChanged();
+        server.sendMessage(Text.literal(
+                "[比赛系统] 比赛阶段: " + expected.getDisplayName() + " -> " + next.getDisplayName()));
+
+        PHASE_CHANGED.invoker().onPhaseChanged(server, expected, next);
+        return true;
+    }
+
+    static void setCountdownRunning(boolean running) {
+        snapshot.updateAndGet(s -> new Snapshot(s.phase(), running, s.portalMonitorRunning(), s.dragonMonitorRunning()));
+    }
+
+    static void setPortalMonitorRunning(boolean running) {
+        snapshot.updateAndGet(s -> new Snapshot(s.phase(), s.countdownRunning(), running, s.dragonMonitorRunning()));
+    }
+
+    static void setDragonMonitorRunning(boolean running) {
+        snapshot.updateAndGet(s -> new Snapshot(s.phase(), s.countdownRunning(), s.portalMonitorRunning(), running));
+    }
+
+    // 保存当前阶段
+    static NbtCompound writeState() {
+        NbtCompound nbt = new NbtCompound();
+        nbt.putString("phase", getPhase().name());
+        return nbt;
+    }
+
+    /**
+     * 服务器重启后恢复阶段（不触发阶段转换事件），准备阶段和比赛中需要的监听直接重新启动
+     */
+    static void readState(NbtCompound nbt, MinecraftServer server) {
+        CompetitionPhase phase;
+        try {
+            phase = CompetitionPhase.valueOf(nbt.getString("phase"));
+        } catch (IllegalArgumentException e) {
+            phase = CompetitionPhase.IDLE;
+        }
+
+        // 出生点选择依赖内存中的位置记录，无法恢复：回到未开始，并像 cancelstart 一样还原玩家快照，
+        // 否则玩家会一直留在准备区域的旁观模式，而且阶段已经不是启动流程，无法再用 cancelstart 还原
+        if (phase == CompetitionPhase.STARTING) {
+            phase = CompetitionPhase.IDLE;
+            CompetitionState.markChanged();
+
+            // 服务器刚启动时没有在线玩家，快照全部转为下次进入服务器时还原
+            PlayerBatch batch = new PlayerBatch("restart-restore");
+            PlayerSnapshots.restoreAll(batch, result -> {
+                batch.apply(server);
+                server.sendMessage(Text.literal("[比赛系统] 重启时比赛启动流程未完成，已回到未开始，" +
+                        result.pending() + " 名玩家将在进入服务器时恢复状态"));
+            });
+        }
+
+        CompetitionPhase restoredPhase = phase;
+        snapshot.updateAndGet(s -> s.withPhase(restoredPhase));
+
+        if (phase == CompetitionPhase.PREPARATION || phase == CompetitionPhase.RUNNING) {
+            EndCompetitionOnDragonKillCommand.start(server.getCommandSource());
+            EndPortalMonitorCommand.start(server.getCommandSource());
+        }
+    }
+
+    // 关服后回到初始状态
+    public static void onServerStop() {
+        snapshot.set(INITIAL);
+    }
+}
@@ -0,0 +1,51 @@
+package aysta3045.command;
+
+/**
+ * 比赛阶段
+ * IDLE → PREPARATION → STARTING → RUNNING → ENDED，合法的转换见 canTransitionTo
+ */
+public enum CompetitionPhase {
+    // 未开始（也可以跳过准备阶段直接启动比赛）
+    IDLE("未开始"),
+    // 准备阶段：玩家被限制行动，监听已启动
+    PREPARATION("准备阶段"),
+    // 60秒出生点选择
+    STARTING("选择出生点"),
+    // 比赛进行中
+    RUNNING("比赛中"),
+    // 倒计时结束或末影龙被击杀
+    ENDED("已结束");
+
+    private final String displayName;
+
+    CompetitionPhase(String displayName) {
+        this.displayName = displayName;
+    }
+
+    public String getDisplayName() {
+        return displayName;
+    }
+
+    /**
+     * 是否允许从当前阶段直接转换到目标阶段
+     */
+    public boolean canTransitionTo(CompetitionPhase next) {
+        return switch (this) {
+            case IDLE -> next == PREPARATION || next == STARTING;
+            case PREPARATION -> next == STARTING || next == IDLE;
+            // 取消启动流程时回到未开始
+            case STARTING -> next == RUNNING || next == IDLE;
+            case RUNNING -> next == ENDED;
+            // 比赛结束后可以重新进入准备阶段或直接启动下一场
+            case ENDED -> next == PREPARATION || next == STARTING || next == IDLE;
+        };
+    }
+
+    /**
+     * 按序号获取阶段，无效时返回 IDLE（用于GUI同步和读取保存的数据）
+     */
+    public static CompetitionPhase byOrdinal(int ordinal) {
+        CompetitionPhase[] phases = values();
+        return ordinal >= 0 && ordinal < phases.length ? phases[ordinal] : IDLE;
+    }
+}
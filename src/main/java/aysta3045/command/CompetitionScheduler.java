@@ -0,0 +1,238 @@
+package aysta3045.command;
+
+import aysta3045.Competition;
+import net.fabricmc.fabric.api.event.lifecycle.v1.ServerTickEvents;
+import net.minecraft.server.MinecraftServer;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+
+/**
+ * 比赛定时任务调度器
+ * 所有计时类工作都在服务器主线程的tick末尾执行，取代各命令自己创建的线程池
+ */
+public class CompetitionScheduler {
+
+    // 每秒的tick数
+    public static final int TICKS_PER_SECOND = 20;
+
+    // 默认单次执行时间预算（微秒）
+    public static final long DEFAULT_BUDGET_MICROS = 2000;
+
+    // 超出预算时的警告间隔（tick），避免刷屏
+    private static final int OVERRUN_WARN_INTERVAL = 20 * 60;
+
+    private static final List<Task> tasks = new ArrayList<>();
+
+    // 在tick执行过程中新加入的任务，下一个tick才开始参与调度
+    private static final List<Task> pendingTasks = new ArrayList<>();
+
+    private static boolean isTicking = false;
+    private static long currentTick = 0;
+
+    // 整个服务器tick的耗时（从tick开始到调度的任务执行完）
+    private static long tickStartNanos;
+    private static long lastTickNanos;
+
+    public static void initialize() {
+        ServerTickEvents.START_SERVER_TICK.register(server -> tickStartNanos = System.nanoTime());
+        ServerTickEvents.END_SERVER_TICK.register(CompetitionScheduler::onServerTick);
+
+        // 在调度的任务之后记录，本tick的耗时包括比赛任务本身
+        ServerTickEvents.END_SERVER_TICK.register(server -> lastTickNanos = System.nanoTime() - tickStartNanos);
+    }
+
+    private static void onServerTick(MinecraftServer server) {
+        currentTick++;
+
+        if (!pendingTasks.isEmpty()) {
+            tasks.addAll(pendingTasks);
+            pendingTasks.clear();
+        }
+
+        if (tasks.isEmpty()) {
+            return;
+        }
+
+        isTicking = true;
+        try {
+            Iterator<Task> iterator = tasks.iterator();
+            while (iterator.hasNext()) {
+                Task task = iterator.next();
+
+                if (task.cancelled) {
+                    iterator.remove();
+                    continue;
+                }
+
+                if (currentTick < task.nextRunTick) {
+                    continue;
+                }
+
+                task.run();
+
+                if (task.intervalTicks <= 0) {
+                    task.cancelled = true;
+                }
+
+                if (task.cancelled) {
+                    iterator.remove();
+                } else {
+                    task.nextRunTick = currentTick + task.intervalTicks;
+                }
+            }
+        } finally {
+            isTicking = false;
+        }
+    }
+
+    /**
+     * 安排一个重复执行的任务
+     *
+     * @param delayTicks    首次执行前等待的tick数
+     * @param intervalTicks 两次执行之间的tick数
+     * @param budgetMicros  单次执行的时间预算（微秒）
+     */
+    public static Task scheduleRepeating(String name, int delayTicks, int intervalTicks, long budgetMicros, Runnable action) {
+        Task task = new Task(name, Math.max(1, intervalTicks), budgetMicros * 1000L, action);
+        return submit(task, delayTicks);
+    }
+
+    public static Task scheduleRepeating(String name, int delayTicks, int intervalTicks, Runnable action) {
+        return scheduleRepeating(name, delayTicks, intervalTicks, DEFAULT_BUDGET_MICROS, action);
+    }
+
+    /**
+     * 安排一个只执行一次的任务
+     */
+    public static Task scheduleOnce(String name, int delayTicks, Runnable action) {
+        Task task = new Task(name, 0, DEFAULT_BUDGET_MICROS * 1000L, action);
+        return submit(task, delayTicks);
+    }
+
+    private static Task submit(Task task, int delayTicks) {
+        task.nextRunTick = currentTick + Math.max(1, delayTicks);
+
+        if (isTicking) {
+            pendingTasks.add(task);
+        } else {
+            tasks.add(task);
+        }
+        return task;
+    }
+
+    /**
+     * 取消任务（允许传入null）
+     */
+    public static void cancel(Task task) {
+        if (task != null) {
+            task.cancel();
+        }
+    }
+
+    /**
+     * 上一个完整tick的耗时（纳秒），在任务中读取时即为前一个tick
+     */
+    public static long getLastTickNanos() {
+        return lastTickNanos;
+    }
+
+    /**
+     * 获取调度器自身的tick计数
+     */
+    public static long getCurrentTick() {
+        return currentTick;
+    }
+
+    // 服务器停止时清空所有任务
+    public static void onServerStop() {
+        for (Task task : tasks) {
+            task.cancelled = true;
+        }
+        for (Task task : pendingTasks) {
+            task.cancelled = true;
+        }
+        tasks.clear();
+        pendingTasks.clear();
+    }
+
+    public static class Task {
+        private final String name;
+        private final int intervalTicks;
+        private final long budgetNanos;
+        private final Runnable action;
+
+        private long nextRunTick;
+        private boolean cancelled = false;
+
+        // 当前这次执行的开始时间
+        private long runStartNanos;
+
+        // 统计信息
+        private long lastRunNanos;
+        private long maxRunNanos;
+        private int overrunCount;
+        private long lastOverrunWarnTick = -OVERRUN_WARN_INTERVAL;
+
+        private Task(String name, int intervalTicks, long budgetNanos, Runnable action) {
+            this.name = name;
+            this.intervalTicks = intervalTicks;
+            this.budgetNanos = budgetNanos;
+            this.action = action;
+        }
+
+        private void run() {
+            runStartNanos = System.nanoTime();
+            try {
+                action.run();
+            } catch (Exception e) {
+                System.err.println("定时任务 " + name + " 异常: " + e.getMessage());
+                e.printStackTrace();
+            }
+
+            lastRunNanos = System.nanoTime() - runStartNanos;
+            maxRunNanos = Math.max(maxRunNanos, lastRunNanos);
+
+            if (lastRunNanos > budgetNanos) {
+                overrunCount++;
+                if (currentTick - lastOverrunWarnTick >= OVERRUN_WARN_INTERVAL) {
+                    lastOverrunWarnTick = currentTick;
+                    Competition.LOGGER.warn("[比赛系统] 定时任务 {} 耗时 {}μs，超出预算 {}μs（累计超时 {} 次）",
+                            name, lastRunNanos / 1000, budgetNanos / 1000, overrunCount);
+                }
+            }
+        }
+
+        /**
+         * 本次执行是否还有剩余时间预算，供分批处理的任务判断是否应当让出到下一个tick
+         */
+        public boolean hasBudgetRemaining() {
+            return System.nanoTime() - runStartNanos < budgetNanos;
+        }
+
+        public void cancel() {
+            cancelled = true;
+        }
+
+        public boolean isCancelled() {
+            return cancelled;
+        }
+
+        public String getName() {
+            return name;
+        }
+
+        public long getLastRunNanos() {
+            return lastRunNanos;
+        }
+
+        public long getMaxRunNanos() {
+            return maxRunNanos;
+        }
+
+        public int getOverrunCount() {
+            return overrunCount;
+        }
+    }
+}
@@ -0,0 +1,177 @@
+package aysta3045.command;
+
+import aysta3045.Competition;
+import net.fabricmc.fabric.api.event.lifecycle.v1.ServerLifecycleEvents;
+import net.minecraft.nbt.NbtCompound;
+import net.minecraft.nbt.NbtHelper;
+import net.minecraft.nbt.NbtIo;
+import net.minecraft.registry.RegistryWrapper;
+import net.minecraft.server.MinecraftServer;
+import net.minecraft.server.world.ServerWorld;
+import net.minecraft.util.WorldSavePath;
+import net.minecraft.world.PersistentState;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 比赛状态持久化
+ * 以 PersistentState 的形式保存在主世界的 data/competition.dat 中。
+ * 各模块的数据仍然保存在各自的静态字段里，发生变化时调用 markChanged()，
+ * 合并一秒内的多次变化后在服务器线程生成NBT快照，再由后台线程写入文件；
+ * 服务器启动时读取并恢复到各模块，包括倒计时的剩余时间
+ */
+public class CompetitionState extends PersistentState {
+
+    private static final String STATE_ID = Competition.MOD_ID;
+
+    // 变化后等待多少tick再保存，合并短时间内的多次修改
+    private static final int SAVE_DELAY_TICKS = CompetitionScheduler.TICKS_PER_SECOND;
+
+    private static final PersistentState.Type<CompetitionState> TYPE = new PersistentState.Type<>(
+            CompetitionState::new,
+            CompetitionState::fromNbt,
+            null
+    );
+
+    private static MinecraftServer server;
+    private static CompetitionState instance;
+    private static CompetitionScheduler.Task saveTask;
+    private static ExecutorService saveExecutor;
+
+    // 启动时从文件读到的数据，恢复完成后丢弃
+    private NbtCompound loadedData;
+
+    // 关服时的状态快照，各模块随后会清空自己的数据，原版最后一次保存时写入这份快照
+    private NbtCompound stoppingData;
+
+    private CompetitionState() {
+    }
+
+    private static CompetitionState fromNbt(NbtCompound nbt, RegistryWrapper.WrapperLookup registryLookup) {
+        CompetitionState state = new CompetitionState();
+        state.loadedData = nbt;
+        return state;
+    }
+
+    @Override
+    public NbtCompound writeNbt(NbtCompound nbt, RegistryWrapper.WrapperLookup registryLookup) {
+        if (stoppingData != null) {
+            return nbt.copyFrom(stoppingData);
+        }
+
+        nbt.put("lifecycle", CompetitionLifecycle.writeState());
+        nbt.put("teams", TeamSetCommand.writeState());
+        nbt.put("disabledPlayers", CloseCommandsCommand.writeState());
+        nbt.put("countdown", CountdownCommand.writeState());
+        nbt.put("portalFrames", EndPortalMonitorCommand.writeState());
+        nbt.put("dragon", EndCompetitionOnDragonKillCommand.writeState());
+        nbt.put("frozenPlayers", PlayerFreeze.writeState());
+        return nbt;
+    }
+
+    public static void initialize() {
+        ServerLifecycleEvents.SERVER_STARTED.register(CompetitionState::onServerStarted);
+        ServerLifecycleEvents.SERVER_STOPPING.register(CompetitionState::onServerStopping);
+    }
+
+    private static void onServerStarted(MinecraftServer startedServer) {
+        server = startedServer;
+        saveExecutor = Executors.newSingleThreadExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "Competition-StateSaver");
+            thread.setDaemon(true);
+            return thread;
+        });
+
+        ServerWorld overworld = server.getOverworld();
+        instance = overworld.getPersistentStateManager().getOrCreate(TYPE, STATE_ID);
+
+        NbtCompound data = instance.loadedData;
+        instance.loadedData = null;
+        if (data == null) {
+            return;
+        }
+
+        // 恢复各模块的状态
+        try {
+            TeamSetCommand.readState(data.getCompound("teams"));
+            CloseCommandsCommand.readState(data.getCompound("disabledPlayers"));
+            // 恢复阶段时会重新启动监听，需要在恢复框架记录和击杀记录之前
+            CompetitionLifecycle.readState(data.getCompound("lifecycle"), server);
+            EndPortalMonitorCommand.readState(data.getCompound("portalFrames"));
+            EndCompetitionOnDragonKillCommand.readState(data.getCompound("dragon"));
+            CountdownCommand.readState(data.getCompound("countdown"), server);
+            PlayerFreeze.readState(data.getCompound("frozenPlayers"));
+            Competition.LOGGER.info("[比赛系统] 已恢复上次保存的比赛状态");
+        } catch (Exception e) {
+            Competition.LOGGER.error("[比赛系统] 恢复比赛状态失败", e);
+        }
+    }
+
+    private static void onServerStopping(MinecraftServer stoppingServer) {
+        CompetitionScheduler.cancel(saveTask);
+        saveTask = null;
+
+        // 等待后台写入完成，之后交给原版在关服时统一同步保存最新的状态
+        if (saveExecutor != null) {
+            saveExecutor.shutdown();
+            try {
+                saveExecutor.awaitTermination(10, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            saveExecutor = null;
+        }
+
+        // 这个监听器先于各模块的清理注册，此时各模块的数据还在
+        if (instance != null) {
+            instance.stoppingData = instance.writeNbt(new NbtCompound(), stoppingServer.getRegistryManager());
+            instance.markDirty();
+        }
+
+        instance = null;
+        server = null;
+    }
+
+    /**
+     * 比赛状态发生变化，稍后异步保存（只能在服务器线程调用）
+     */
+    public static void markChanged() {
+        if (instance == null || saveTask != null) {
+            return;
+        }
+
+        saveTask = CompetitionScheduler.scheduleOnce("competition-state-save", SAVE_DELAY_TICKS, () -> {
+            saveTask = null;
+            saveAsync();
+        });
+    }
+
+    private static void saveAsync() {
+        if (instance == null || saveExecutor == null) {
+            return;
+        }
+
+        // 在服务器线程生成快照，保证读取各模块状态时没有并发修改
+        NbtCompound root = new NbtCompound();
+        root.put("data", instance.writeNbt(new NbtCompound(), server.getRegistryManager()));
+        NbtHelper.putDataVersion(root);
+
+        Path file = server.getSavePath(WorldSavePath.ROOT).resolve("data").resolve(STATE_ID + ".dat");
+
+        saveExecutor.execute(() -> {
+            try {
+                Files.createDirectories(file.getParent());
+                Path tempFile = file.resolveSibling(STATE_ID + ".dat.tmp");
+                NbtIo.writeCompressed(root, tempFile);
+                Files.move(tempFile, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            } catch (Exception e) {
+                Competition.LOGGER.error("[比赛系统] 保存比赛状态失败", e);
+            }
+        });
+    }
+}
@@ -0,0 +1,118 @@
+package aysta3045.command;
+
+import net.minecraft.scoreboard.ServerScoreboard;
+import net.minecraft.scoreboard.Team;
+import net.minecraft.server.MinecraftServer;
+import net.minecraft.server.network.ServerPlayerEntity;
+
+import java.util.Objects;
+
+/**
+ * 比赛队伍管理
+ * 直接操作服务器计分板上的原版队伍，取代拼接 /team 命令字符串再交给命令系统解析的方式
+ */
+public class CompetitionTeams {
+
+    // 原版队伍名称前缀
+    private static final String TEAM_NAME_PREFIX = "team_";
+
+    /**
+     * 获取分组对应的原版队伍名称
+     */
+    public static String getTeamName(String teamId) {
+        return TEAM_NAME_PREFIX + teamId;
+    }
+
+    /**
+     * 获取分组对应的原版队伍，不存在时创建；已存在时只更新与定义不一致的属性
+     */
+    public static Team ensureTeam(MinecraftServer server, TeamSetCommand.TeamInfo teamInfo) {
+        ServerScoreboard scoreboard = server.getScoreboard();
+        String teamName = getTeamName(teamInfo.getId());
+
+        Team team = scoreboard.getTeam(teamName);
+        if (team == null) {
+            team = scoreboard.addTeam(teamName);
+        }
+
+        // 每个属性的修改都会向所有玩家发送一次队伍更新包，所以只修改有变化的属性
+        if (!Objects.equals(team.getDisplayName(), teamInfo.getDisplayText())) {
+            team.setDisplayName(teamInfo.getDisplayText());
+        }
+        if (team.getColor() != teamInfo.getColor()) {
+            team.setColor(teamInfo.getColor());
+        }
+        if (!Objects.equals(team.getPrefix(), teamInfo.getPrefixText())) {
+            team.setPrefix(teamInfo.getPrefixText());
+        }
+
+        return team;
+    }
+
+    /**
+     * 创建或更新所有分组对应的原版队伍，可以重复执行
+     *
+     * @return 新创建的队伍数量
+     */
+    public static int ensureAllTeams(MinecraftServer server) {
+        ServerScoreboard scoreboard = server.getScoreboard();
+        int createdCount = 0;
+
+        for (TeamSetCommand.TeamInfo teamInfo : TeamDefinitions.all()) {
+            if (scoreboard.getTeam(getTeamName(teamInfo.getId())) == null) {
+                createdCount++;
+            }
+            ensureTeam(server, teamInfo);
+        }
+
+        return createdCount;
+    }
+
+    /**
+     * 将玩家加入分组对应的原版队伍（会自动离开之前的队伍）
+     */
+    public static boolean joinTeam(MinecraftServer server, ServerPlayerEntity player, TeamSetCommand.TeamInfo teamInfo) {
+        Team team = ensureTeam(server, teamInfo);
+        return server.getScoreboard().addScoreHolderToTeam(player.getNameForScoreboard(), team);
+    }
+
+    /**
+     * 将玩家从当前所在的原版队伍中移除
+     */
+    public static boolean leaveTeam(MinecraftServer server, ServerPlayerEntity player) {
+        return server.getScoreboard().clearTeam(player.getNameForScoreboard());
+    }
+
+    /**
+     * 删除所有比赛分组对应的原版队伍
+     */
+    public static void removeAllTeams(MinecraftServer server) {
+        for (TeamSetCommand.TeamInfo teamInfo : TeamDefinitions.all()) {
+            removeTeam(server, teamInfo.getId());
+        }
+    }
+
+    /**
+     * 删除一个分组对应的原版队伍（不存在时忽略）
+     */
+    public static void removeTeam(MinecraftServer server, String teamId) {
+        ServerScoreboard scoreboard = server.getScoreboard();
+        Team team = scoreboard.getTeam(getTeamName(teamId));
+        if (team != null) {
+            scoreboard.removeTeam(team);
+        }
+    }
+
+    /**
+     * 分组定义重新加载后，把已存在的原版队伍更新为新的属性（不创建新队伍）
+     */
+    public static void refreshExistingTeams(MinecraftServer server) {
+        ServerScoreboard scoreboard = server.getScoreboard();
+
+        for (TeamSetCommand.TeamInfo teamInfo : TeamDefinitions.all()) {
+            if (scoreboard.getTeam(getTeamName(teamInfo.getId())) != null) {
+                ensureTeam(server, teamInfo);
+            }
+        }
+    }
+}
@@ -3,6 +3,8 @@ package aysta3045.command;
 import com.mojang.brigadier.CommandDispatcher;
 import com.mojang.brigadier.arguments.IntegerArgumentType;
 import com.mojang.brigadier.context.CommandContext;
+import net.minecraft.nbt.NbtCompound;
+import net.minecraft.server.MinecraftServer;
 import net.minecraft.server.command.CommandManager;
 import net.minecraft.server.command.ServerCommandSource;
 import net.minecraft.server.network.ServerPlayerEntity;
@@ -13,21 +15,20 @@ import net.minecraft.sound.SoundEvents;
 import net.minecraft.network.packet.s2c.play.SubtitleS2CPacket;
 import net.minecraft.network.packet.s2c.play.TitleS2CPacket;
 
-import java.util.concurrent.Executors;
-import java.util.concurrent.ScheduledExecutorService;
-import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicInteger;
 
 public class CountdownCommand {
-    private static ScheduledExecutorService scheduler;
-    private static boolean isCountingDown = false;
+    // 默认倒计时长度：3小时30分钟
+    private static final int DEFAULT_SECONDS = 12600;
+
+    private static CompetitionScheduler.Task countdownTask;
     private static AtomicInteger remainingSeconds = new AtomicInteger(0);
 
     public static void register(CommandDispatcher<ServerCommandSource> dispatcher) {
         dispatcher.register(CommandManager.literal("competition")
                 .then(CommandManager.literal("countdown")
                         .requires(source -> source.hasPermissionLevel(2))
-                        .executes(context -> startCountdown(context, 12600)) // 默认3小时30分钟
+                        .executes(context -> startCountdown(context, DEFAULT_SECONDS)) // 默认3小时30分钟
                         .then(CommandManager.argument("seconds", IntegerArgumentType.integer(1, 86400))
                                 .executes(context -> {
                                     int seconds = IntegerArgumentType.getInteger(context, "seconds");
@@ -55,17 +56,29 @@ public class CountdownCommand {
             return 0;
         }
 
-        if (isCountingDown) {
+        if (!start(source, sender.getName().getString(), totalSeconds)) {
             source.sendError(Text.literal("§c倒计时已经在运行中！使用 /competition stopcountdown 停止当前倒计时"));
             return 0;
         }
 
-        // 初始化调度器
-        if (scheduler == null || scheduler.isShutdown()) {
-            scheduler = Executors.newScheduledThreadPool(1);
+        source.sendMessage(
+                Text.literal("§a倒计时已启动: §e" + formatTime(totalSeconds))
+        );
+
+        return 1;
+    }
+
+    /**
+     * 启动倒计时（命令和比赛阶段转换共用）
+     *
+     * @return 已经在运行时返回false
+     */
+    static boolean start(ServerCommandSource source, String starterName, int totalSeconds) {
+        if (isCountdownRunning()) {
+            return false;
         }
 
-        isCountingDown = true;
+        CompetitionLifecycle.setCountdownRunning(true);
         remainingSeconds.set(totalSeconds);
 
         // 广播倒计时开始
@@ -87,12 +100,33 @@ public class CountdownCommand {
 
         // 记录到控制台
         source.getServer().sendMessage(
-                Text.literal("[比赛系统] " + sender.getName().getString() +
+                Text.literal("[比赛系统] " + starterName +
                         " 启动了倒计时: " + formatTime(totalSeconds))
         );
 
-        // 启动定时任务
-        scheduler.scheduleAtFixedRate(() -> {
+        startCountdownTask(source);
+        CompetitionState.markChanged();
+
+        return true;
+    }
+
+    /**
+     * 比赛进入进行阶段时自动开始默认倒计时，比赛结束时停止
+     */
+    public static void initialize() {
+        CompetitionLifecycle.PHASE_CHANGED.register((server, previous, next) -> {
+            if (next == CompetitionPhase.RUNNING) {
+                start(server.getCommandSource(), "比赛流程", DEFAULT_SECONDS);
+            } else if (next == CompetitionPhase.ENDED && isCountdownRunning()) {
+                stopCountdown();
+            }
+        });
+    }
+
+    // 启动定时任务（在服务器主线程每秒执行一次）
+    private static void startCountdownTask(ServerCommandSource source) {
+        countdownTask = CompetitionScheduler.scheduleRepeating("countdown",
+                CompetitionScheduler.TICKS_PER_SECOND, CompetitionScheduler.TICKS_PER_SECOND, () -> {
             try {
                 int currentSeconds = remainingSeconds.decrementAndGet();
 
@@ -100,9 +134,15 @@ public class CountdownCommand {
                     // 倒计时结束
                     endCountdown(source);
                     stopCountdown();
+                    CompetitionLifecycle.transition(source.getServer(), CompetitionPhase.RUNNING, CompetitionPhase.ENDED);
                     return;
                 }
 
+                // 每10秒保存一次剩余时间，重启后从最近的保存点继续
+                if (currentSeconds % 10 == 0) {
+                    CompetitionState.markChanged();
+                }
+
                 // 特殊时间点提示
                 if (currentSeconds == 600) {
                     broadcastMessage(source, "§6[比赛系统] §a剩余时间: §e10分钟");
@@ -160,13 +200,7 @@ public class CountdownCommand {
                 System.err.println("倒计时任务异常: " + e.getMessage());
                 e.printStackTrace();
             }
-        }, 1, 1, TimeUnit.SECONDS);
-
-        source.sendMessage(
-                Text.literal("§a倒计时已启动: §e" + formatTime(totalSeconds))
-        );
-
-        return 1;
+        });
     }
 
     private static void endCountdown(ServerCommandSource source) {
@@ -220,21 +254,24 @@ public class CountdownCommand {
             return 0;
         }
 
-        if (!isCountingDown) {
+        if (!isCountdownRunning()) {
             source.sendError(Text.literal("§c没有正在运行的倒计时！"));
             return 0;
         }
 
         stopCountdown();
 
+        // 比赛中倒计时是唯一的计时器，停止后直接结束比赛，否则阶段会一直停在比赛中
+        boolean ended = CompetitionLifecycle.transition(source.getServer(), CompetitionPhase.RUNNING, CompetitionPhase.ENDED);
+
         source.sendMessage(
-                Text.literal("§a已停止当前倒计时")
+                Text.literal(ended ? "§a已停止当前倒计时，比赛已结束" : "§a已停止当前倒计时")
         );
 
         // 广播消息
         for (ServerPlayerEntity player : source.getServer().getPlayerManager().getPlayerList()) {
             player.sendMessage(
-                    Text.literal("§6[比赛系统] §c倒计时已被管理员停止")
+                    Text.literal(ended ? "§6[比赛系统] §c倒计时已被管理员停止，比赛结束" : "§6[比赛系统] §c倒计时已被管理员停止")
             );
         }
 
@@ -242,17 +279,40 @@ public class CountdownCommand {
     }
 
     static void stopCountdown() {
-        isCountingDown = false;
-        if (scheduler != null && !scheduler.isShutdown()) {
-            scheduler.shutdownNow();
-            scheduler = null;
+        CompetitionLifecycle.setCountdownRunning(false);
+        CompetitionScheduler.cancel(countdownTask);
+        countdownTask = null;
+        CompetitionState.markChanged();
+    }
+
+    // 保存倒计时状态
+    static NbtCompound writeState() {
+        NbtCompound nbt = new NbtCompound();
+        nbt.putBoolean("running", isCountdownRunning());
+        nbt.putInt("remainingSeconds", remainingSeconds.get());
+        return nbt;
+    }
+
+    // 服务器重启后继续之前的倒计时
+    static void readState(NbtCompound nbt, MinecraftServer server) {
+        int seconds = nbt.getInt("remainingSeconds");
+        if (!nbt.getBoolean("running") || seconds <= 0 || isCountdownRunning()) {
+            return;
         }
+
+        CompetitionLifecycle.setCountdownRunning(true);
+        remainingSeconds.set(seconds);
+        startCountdownTask(server.getCommandSource());
+
+        server.sendMessage(
+                Text.literal("[比赛系统] 已恢复倒计时，剩余: " + formatTime(seconds))
+        );
     }
 
     private static int checkCountdown(CommandContext<ServerCommandSource> context) {
         ServerCommandSource source = context.getSource();
 
-        if (isCountingDown) {
+        if (isCountdownRunning()) {
             int seconds = remainingSeconds.get();
             source.sendMessage(
                     Text.literal("§a当前倒计时剩余: §e" + formatTime(seconds))
@@ -352,7 +412,7 @@ public class CountdownCommand {
 
     // 检查是否有倒计时正在运行
     public static boolean isCountdownRunning() {
-        return isCountingDown;
+        return CompetitionLifecycle.snapshot().countdownRunning();
     }
 
     // 获取剩余时间
@@ -2,9 +2,18 @@ package aysta3045.command;
 
 import com.mojang.brigadier.CommandDispatcher;
 import com.mojang.brigadier.context.CommandContext;
+import net.fabricmc.fabric.api.entity.event.v1.ServerLivingEntityEvents;
 import net.minecraft.advancement.AdvancementEntry;
 import net.minecraft.advancement.AdvancementProgress;
 import net.minecraft.advancement.PlayerAdvancementTracker;
+import net.minecraft.entity.Entity;
+import net.minecraft.entity.LivingEntity;
+import net.minecraft.entity.boss.dragon.EnderDragonEntity;
+import net.minecraft.entity.damage.DamageSource;
+import net.minecraft.nbt.NbtCompound;
+import net.minecraft.nbt.NbtElement;
+import net.minecraft.nbt.NbtHelper;
+import net.minecraft.nbt.NbtList;
 import net.minecraft.server.command.CommandManager;
 import net.minecraft.server.command.ServerCommandSource;
 import net.minecraft.server.network.ServerPlayerEntity;
@@ -14,16 +23,21 @@ import net.minecraft.world.World;
 
 import java.util.*;
 import java.util.concurrent.ConcurrentHashMap;
-import java.util.concurrent.Executors;
-import java.util.concurrent.ScheduledExecutorService;
-import java.util.concurrent.TimeUnit;
 
 public class EndCompetitionOnDragonKillCommand {
-    // 存储监听状态的变量
-    private static boolean isMonitoring = false;
-    private static ScheduledExecutorService scheduler;
+    // 监听状态保存在 CompetitionLifecycle 的快照中
+    private static ServerCommandSource monitorSource;
     private static final Set<UUID> dragonKilledPlayers = ConcurrentHashMap.newKeySet();
 
+    // 最近一次末影龙击杀记录
+    private static DragonKillRecord lastKillRecord;
+
+    /**
+     * 末影龙击杀记录：击杀者、服务器tick和纳秒时间戳
+     */
+    public record DragonKillRecord(UUID killerUuid, String killerName, int serverTick, long nanoTime) {
+    }
+
     // 末影龙击杀成就的ID
     private static final Identifier END_DRAGON_ADVANCEMENT =
             Identifier.of("minecraft", "end/kill_dragon");
@@ -54,7 +68,7 @@ public class EndCompetitionOnDragonKillCommand {
             return 0;
         }
 
-        if (isMonitoring) {
+        if (!start(source)) {
             source.sendMessage(
                     Text.literal("§c末影龙击杀监听已经在运行中!")
                             .styled(style -> style.withColor(0xFF5555))
@@ -62,23 +76,35 @@ public class EndCompetitionOnDragonKillCommand {
             return 0;
         }
 
-        // 初始化调度器
-        if (scheduler == null || scheduler.isShutdown()) {
-            scheduler = Executors.newScheduledThreadPool(1);
+        source.sendMessage(
+                Text.literal("§a已启动末影龙击杀监听! 当有玩家击杀末影龙时，比赛将自动结束。")
+        );
+
+        // 记录到控制台
+        source.getServer().sendMessage(
+                Text.literal("[比赛系统] " + sender.getName().getString() +
+                        " 启动了末影龙击杀监听")
+        );
+
+        return 1;
+    }
+
+    /**
+     * 启动末影龙击杀监听（命令和比赛阶段转换共用）
+     *
+     * @return 已经在运行时返回false
+     */
+    static boolean start(ServerCommandSource source) {
+        if (isMonitoring()) {
+            return false;
         }
 
-        isMonitoring = true;
+        // 击杀由末影龙死亡事件通知，无需定时轮询
+        CompetitionLifecycle.setDragonMonitorRunning(true);
+        monitorSource = source;
         dragonKilledPlayers.clear();
-
-        // 启动监听任务
-        scheduler.scheduleAtFixedRate(() -> {
-            try {
-                checkForDragonKill(source);
-            } catch (Exception e) {
-                System.err.println("末影龙击杀监听异常: " + e.getMessage());
-                e.printStackTrace();
-            }
-        }, 1, 1, TimeUnit.SECONDS);
+        lastKillRecord = null;
+        CompetitionState.markChanged();
 
         // 广播监听开始消息
         for (ServerPlayerEntity player : source.getServer().getPlayerManager().getPlayerList()) {
@@ -92,17 +118,7 @@ public class EndCompetitionOnDragonKillCommand {
             );
         }
 
-        source.sendMessage(
-                Text.literal("§a已启动末影龙击杀监听! 当有玩家击杀末影龙时，比赛将自动结束。")
-        );
-
-        // 记录到控制台
-        source.getServer().sendMessage(
-                Text.literal("[比赛系统] " + sender.getName().getString() +
-                        " 启动了末影龙击杀监听")
-        );
-
-        return 1;
+        return true;
     }
 
     private static int stopMonitoring(CommandContext<ServerCommandSource> context) {
@@ -114,7 +130,7 @@ public class EndCompetitionOnDragonKillCommand {
             return 0;
         }
 
-        if (!isMonitoring) {
+        if (!isMonitoring()) {
             source.sendMessage(
                     Text.literal("§c末影龙击杀监听未在运行!")
             );
@@ -146,7 +162,7 @@ public class EndCompetitionOnDragonKillCommand {
     private static int checkStatus(CommandContext<ServerCommandSource> context) {
         ServerCommandSource source = context.getSource();
 
-        if (isMonitoring) {
+        if (isMonitoring()) {
             source.sendMessage(
                     Text.literal("§a末影龙击杀监听正在运行中")
                             .styled(style -> style.withColor(0x55FF55))
@@ -173,38 +189,93 @@ public class EndCompetitionOnDragonKillCommand {
             );
         }
 
+        if (lastKillRecord != null) {
+            source.sendMessage(
+                    Text.literal("§7最近一次击杀: §e" + lastKillRecord.killerName() +
+                            " §7(服务器tick " + lastKillRecord.serverTick() + ")")
+            );
+        }
+
         return 1;
     }
 
-    private static void checkForDragonKill(ServerCommandSource source) {
-        boolean dragonKilledThisTick = false;
-        ServerPlayerEntity killer = null;
-
-        // 检查所有在线玩家
-        for (ServerPlayerEntity player : source.getServer().getPlayerManager().getPlayerList()) {
-            if (hasKilledDragon(player) && !dragonKilledPlayers.contains(player.getUuid())) {
-                // 记录击杀了末影龙的玩家
-                dragonKilledPlayers.add(player.getUuid());
-                dragonKilledThisTick = true;
-                killer = player;
-                break; // 只处理第一个击杀的玩家
+    /**
+     * 注册实体死亡事件，末影龙死亡的当tick即按真实击杀者结束比赛
+     */
+    public static void initialize() {
+        ServerLivingEntityEvents.AFTER_DEATH.register((entity, damageSource) -> {
+            if (isMonitoring() && entity instanceof EnderDragonEntity dragon) {
+                try {
+                    onDragonDeath(dragon, damageSource);
+                } catch (Exception e) {
+                    System.err.println("末影龙击杀监听异常: " + e.getMessage());
+                    e.printStackTrace();
+                }
             }
+        });
+
+        // 准备阶段、启动流程和比赛中监听（跳过准备阶段直接启动时也要启动），取消或结束时停止
+        CompetitionLifecycle.PHASE_CHANGED.register((server, previous, next) -> {
+            if (next == CompetitionPhase.IDLE || next == CompetitionPhase.ENDED) {
+                cleanup();
+            } else if (!isMonitoring()) {
+                start(server.getCommandSource());
+            }
+        });
+    }
+
+    private static void onDragonDeath(EnderDragonEntity dragon, DamageSource damageSource) {
+        ServerPlayerEntity killer = findKiller(dragon, damageSource);
+
+        if (killer == null) {
+            // 没有玩家击杀者（例如指令杀死），不结束比赛
+            monitorSource.getServer().sendMessage(
+                    Text.literal("[比赛系统] 末影龙已死亡，但没有找到击杀它的玩家，继续监听")
+            );
+            return;
         }
 
-        if (dragonKilledThisTick && killer != null) {
-            // 停止倒计时
-            if (CountdownCommand.isCountdownRunning()) {
-                // 创建一个临时的ServerCommandSource来调用stopCountdown
-                ServerCommandSource tempSource = source.getServer().getCommandSource();
-                CountdownCommand.stopCountdown();
-            }
+        onDragonKilled(monitorSource, killer);
+    }
 
-            // 停止监听
-            cleanup();
+    /**
+     * 找出击杀末影龙的玩家：优先取伤害来源（弹射物会追溯到发射者），其次取最后攻击它的玩家
+     */
+    private static ServerPlayerEntity findKiller(EnderDragonEntity dragon, DamageSource damageSource) {
+        Entity attacker = damageSource.getAttacker();
+        if (attacker instanceof ServerPlayerEntity player) {
+            return player;
+        }
 
-            // 宣布比赛结束
-            announceCompetitionEnd(source, killer);
+        LivingEntity adversary = dragon.getPrimeAdversary();
+        if (adversary instanceof ServerPlayerEntity player) {
+            return player;
         }
+
+        return null;
+    }
+
+    private static void onDragonKilled(ServerCommandSource source, ServerPlayerEntity killer) {
+        // 先结束比赛：只有比赛中才算获胜，同一时刻只有一个结束（倒计时或击杀）能成功
+        if (!CompetitionLifecycle.transition(source.getServer(), CompetitionPhase.RUNNING, CompetitionPhase.ENDED)) {
+            source.getServer().sendMessage(
+                    Text.literal("[比赛系统] " + killer.getName().getString() + " 击杀了末影龙，但比赛不在进行中，不结束比赛")
+            );
+            return;
+        }
+
+        // 记录击杀了末影龙的玩家（结束比赛时已停止倒计时和监听）
+        dragonKilledPlayers.add(killer.getUuid());
+        lastKillRecord = new DragonKillRecord(
+                killer.getUuid(),
+                killer.getName().getString(),
+                source.getServer().getTicks(),
+                System.nanoTime()
+        );
+        CompetitionState.markChanged();
+
+        // 宣布比赛结束
+        announceCompetitionEnd(source, killer);
     }
 
     private static boolean hasKilledDragon(ServerPlayerEntity player) {
@@ -308,16 +379,14 @@ public class EndCompetitionOnDragonKillCommand {
         // 记录到控制台
         source.getServer().sendMessage(
                 Text.literal("[比赛系统] 比赛结束！玩家 " + killer.getName().getString() +
-                        " 击杀了末影龙")
+                        " 击杀了末影龙 (服务器tick " + lastKillRecord.serverTick() +
+                        ", nanoTime " + lastKillRecord.nanoTime() + ")")
         );
     }
 
     private static void cleanup() {
-        isMonitoring = false;
-        if (scheduler != null && !scheduler.isShutdown()) {
-            scheduler.shutdownNow();
-            scheduler = null;
-        }
+        CompetitionLifecycle.setDragonMonitorRunning(false);
+        monitorSource = null;
     }
 
     // 清理资源的方法
@@ -325,8 +394,32 @@ public class EndCompetitionOnDragonKillCommand {
         cleanup();
     }
 
+    // 保存已击杀末影龙的玩家
+    static NbtCompound writeState() {
+        NbtList players = new NbtList();
+        for (UUID playerId : dragonKilledPlayers) {
+            players.add(NbtHelper.fromUuid(playerId));
+        }
+
+        NbtCompound nbt = new NbtCompound();
+        nbt.put("killedPlayers", players);
+        return nbt;
+    }
+
+    static void readState(NbtCompound nbt) {
+        dragonKilledPlayers.clear();
+        for (NbtElement element : nbt.getList("killedPlayers", NbtElement.INT_ARRAY_TYPE)) {
+            dragonKilledPlayers.add(NbtHelper.toUuid(element));
+        }
+    }
+
+    // 获取最近一次击杀记录（没有则返回null）
+    public static DragonKillRecord getLastKillRecord() {
+        return lastKillRecord;
+    }
+
     // 获取监听状态的方法（供其他类使用）
     public static boolean isMonitoring() {
-        return isMonitoring;
+        return CompetitionLifecycle.snapshot().dragonMonitorRunning();
     }
 }
\ No newline at end of file
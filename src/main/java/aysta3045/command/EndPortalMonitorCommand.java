@@ -1,16 +1,35 @@
 package aysta3045.command;
 
 import com.mojang.brigadier.CommandDispatcher;
+import com.mojang.brigadier.arguments.StringArgumentType;
 import com.mojang.brigadier.context.CommandContext;
+import net.fabricmc.fabric.api.networking.v1.ServerPlayConnectionEvents;
 import net.minecraft.block.BlockState;
 import net.minecraft.block.Blocks;
 import net.minecraft.block.EndPortalFrameBlock;
+import net.minecraft.nbt.NbtCompound;
+import net.minecraft.nbt.NbtElement;
+import net.minecraft.nbt.NbtList;
+import net.minecraft.registry.RegistryKey;
+import net.minecraft.registry.RegistryKeys;
 import net.minecraft.server.command.CommandManager;
 import net.minecraft.server.command.ServerCommandSource;
 import net.minecraft.server.network.ServerPlayerEntity;
+import net.minecraft.server.world.ServerWorld;
+import net.minecraft.structure.StrongholdGenerator;
+import net.minecraft.structure.StructurePiece;
+import net.minecraft.structure.StructureStart;
 import net.minecraft.text.Text;
+import net.minecraft.util.math.BlockBox;
 import net.minecraft.util.math.BlockPos;
+import net.minecraft.util.math.ChunkPos;
+import net.minecraft.util.math.ChunkSectionPos;
 import net.minecraft.world.World;
+import net.minecraft.world.chunk.Chunk;
+import net.minecraft.world.chunk.ChunkSection;
+import net.minecraft.world.chunk.ChunkStatus;
+import net.minecraft.world.gen.structure.Structure;
+import net.minecraft.world.gen.structure.StructureKeys;
 import net.minecraft.advancement.AdvancementEntry;
 import net.minecraft.advancement.AdvancementProgress;
 import net.minecraft.advancement.PlayerAdvancementTracker;
@@ -18,29 +37,80 @@ import net.minecraft.util.Identifier;
 
 import java.util.*;
 import java.util.concurrent.ConcurrentHashMap;
-import java.util.concurrent.Executors;
-import java.util.concurrent.ScheduledExecutorService;
-import java.util.concurrent.TimeUnit;
 
 public class EndPortalMonitorCommand {
 
-    // 存储监听状态
-    private static boolean isMonitoring = false;
-    private static ScheduledExecutorService scheduler;
+    // 监听状态保存在 CompetitionLifecycle 的快照中
+    private static CompetitionScheduler.Task statusTask;
+    private static CompetitionScheduler.Task scanTask;
+    private static CompetitionScheduler.Task expiryTask;
 
-    // 存储已发现的末地门框架位置（用于去重）
-    private static final Set<String> detectedFrames = ConcurrentHashMap.newKeySet();
+    // 框架扫描每tick的时间预算（微秒），用不完的玩家顺延到下一个tick
+    private static final long SCAN_BUDGET_MICROS = 3000;
 
-    // 存储框架位置和发现时间（用于清理旧记录）
-    private static final Map<String, Long> frameDetectionTime = new ConcurrentHashMap<>();
+    // 等待扫描的玩家队列
+    private static final Deque<UUID> scanQueue = new ArrayDeque<>();
+    private static final Set<UUID> queuedPlayers = new HashSet<>();
+
+    // 框架记录过期时间
     private static final long FRAME_EXPIRE_TIME = 30 * 60 * 1000; // 30分钟后重新播报
 
-    // 存储所有已知框架的详细信息
-    private static final Map<String, FrameInfo> frameInfoMap = new ConcurrentHashMap<>();
+    // 存储所有已知框架的详细信息（键为维度编号 + 坐标压缩后的long，发现时间记录在FrameInfo中）
+    private static final FrameStore frameStore = new FrameStore();
+
+    // 按到期时间排序的框架记录队列
+    // 所有记录的有效期相同且按发现顺序入队，所以队首总是最早到期的记录，每条记录O(1)出队
+    private static final Deque<FrameInfo> expiryQueue = new ArrayDeque<>();
+
+    // 扫描范围：水平半径和垂直半径（格）
+    private static final int SCAN_RADIUS = 10;
+    private static final int SCAN_VERTICAL_RADIUS = 5;
+
+    // 框架扫描模式
+    public enum ScanMode {
+        // 逐个方块读取（原始方式）
+        BRUTE_FORCE,
+        // 先检查区块段调色板，排除不可能包含末地门框架的区块段
+        PALETTE,
+        // 不读取方块，根据要塞结构数据判断玩家是否进入了末地传送门房间
+        STRUCTURE,
+        // 服务器线程只复制区块段快照，在后台线程中并行扫描，结果下一个tick处理
+        SNAPSHOT
+    }
+
+    private static ScanMode scanMode = ScanMode.SNAPSHOT;
+
+    // 快照模式的后台扫描器
+    private static final FrameSnapshotScanner snapshotScanner =
+            new FrameSnapshotScanner(EndPortalMonitorCommand::isEndPortalFrameState);
+
+    // 每个玩家上次扫描范围的中心，用于增量扫描
+    private record ScanWindow(RegistryKey<World> dimension, int x, int y, int z) {
+        // 新旧扫描范围是否重叠
+        boolean overlaps(int newX, int newY, int newZ) {
+            return Math.abs(newX - x) <= 2 * SCAN_RADIUS
+                    && Math.abs(newY - y) <= 2 * SCAN_VERTICAL_RADIUS
+                    && Math.abs(newZ - z) <= 2 * SCAN_RADIUS;
+        }
+    }
+
+    private static final Map<UUID, ScanWindow> scanWindows = new HashMap<>();
+
+    // 每个玩家所在区块中的要塞传送门房间范围，只在玩家换区块时重新查询结构数据
+    private record PortalRoomWindow(RegistryKey<World> dimension, int chunkX, int chunkZ, List<BlockBox> rooms) {
+    }
+
+    private static final Map<UUID, PortalRoomWindow> portalRoomWindows = new HashMap<>();
+
+    // 每个要塞（按维度和起始区块）的传送门房间范围，每个要塞只解析一次
+    private static final Map<RegistryKey<World>, Map<Long, List<BlockBox>>> strongholdRooms = new HashMap<>();
 
     // 框架去重距离（格）
     private static final int FRAME_MIN_DISTANCE = 10; // 两个框架之间的最小距离，小于此距离视为同一个框架
 
+    // 已知框架的空间索引（格子边长等于去重距离）
+    private static final FrameSpatialIndex frameIndex = new FrameSpatialIndex(FRAME_MIN_DISTANCE);
+
     // 存储已获得"隔墙有眼"成就的玩家UUID
     private static final Set<UUID> playersWithEyeSpy = ConcurrentHashMap.newKeySet();
 
@@ -59,15 +129,20 @@ public class EndPortalMonitorCommand {
     public static class FrameInfo {
         public final BlockPos framePosition;
         public final BlockPos discovererPosition;
-        public final World dimension;
+        public final RegistryKey<World> dimension;
         public final long discoveryTime;
         public final String discoveredBy;
 
-        public FrameInfo(BlockPos framePosition, BlockPos discovererPosition, World dimension, String discoveredBy) {
+        public FrameInfo(BlockPos framePosition, BlockPos discovererPosition, RegistryKey<World> dimension, String discoveredBy) {
+            this(framePosition, discovererPosition, dimension, discoveredBy, System.currentTimeMillis());
+        }
+
+        // 从保存的数据恢复时保留原来的发现时间
+        FrameInfo(BlockPos framePosition, BlockPos discovererPosition, RegistryKey<World> dimension, String discoveredBy, long discoveryTime) {
             this.framePosition = framePosition;
             this.discovererPosition = discovererPosition;
             this.dimension = dimension;
-            this.discoveryTime = System.currentTimeMillis();
+            this.discoveryTime = discoveryTime;
             this.discoveredBy = discoveredBy;
         }
 
@@ -82,11 +157,15 @@ public class EndPortalMonitorCommand {
 
         // 计算与另一个框架的距离
         public double distanceTo(BlockPos otherPos) {
-            return Math.sqrt(
-                    Math.pow(framePosition.getX() - otherPos.getX(), 2) +
-                            Math.pow(framePosition.getY() - otherPos.getY(), 2) +
-                            Math.pow(framePosition.getZ() - otherPos.getZ(), 2)
-            );
+            return Math.sqrt(squaredDistanceTo(otherPos));
+        }
+
+        // 计算与另一个框架的距离平方（避免开方）
+        public long squaredDistanceTo(BlockPos otherPos) {
+            long dx = framePosition.getX() - otherPos.getX();
+            long dy = framePosition.getY() - otherPos.getY();
+            long dz = framePosition.getZ() - otherPos.getZ();
+            return dx * dx + dy * dy + dz * dz;
         }
     }
 
@@ -116,6 +195,19 @@ public class EndPortalMonitorCommand {
                         .requires(source -> source.hasPermissionLevel(2))
                         .executes(EndPortalMonitorCommand::checkEyeSpyStatus)
                 )
+                .then(CommandManager.literal("portalscanmode")
+                        .requires(source -> source.hasPermissionLevel(2))
+                        .executes(EndPortalMonitorCommand::showScanMode)
+                        .then(CommandManager.argument("mode", StringArgumentType.word())
+                                .suggests((context, builder) -> {
+                                    for (ScanMode mode : ScanMode.values()) {
+                                        builder.suggest(mode.name().toLowerCase());
+                                    }
+                                    return builder.buildFuture();
+                                })
+                                .executes(EndPortalMonitorCommand::setScanMode)
+                        )
+                )
         );
     }
 
@@ -128,7 +220,7 @@ public class EndPortalMonitorCommand {
             return 0;
         }
 
-        if (isMonitoring) {
+        if (!start(source)) {
             source.sendMessage(
                     Text.literal("§c末地门框架监听已经在运行中!")
                             .styled(style -> style.withColor(0xFF5555))
@@ -136,43 +228,70 @@ public class EndPortalMonitorCommand {
             return 0;
         }
 
-        // 初始化调度器
-        if (scheduler == null || scheduler.isShutdown()) {
-            scheduler = Executors.newScheduledThreadPool(1);
+        source.sendMessage(
+                Text.literal("§a已启动末地门框架监听! 仅对获得'隔墙有眼'且未进入末地的玩家生效。")
+        );
+
+        // 记录到控制台
+        source.getServer().sendMessage(
+                Text.literal("[比赛系统] " + sender.getName().getString() + " 启动了末地门框架监听")
+        );
+
+        return 1;
+    }
+
+    /**
+     * 启动末地门框架监听（命令和比赛阶段转换共用）
+     *
+     * @return 已经在运行时返回false
+     */
+    static boolean start(ServerCommandSource source) {
+        if (isMonitoring()) {
+            return false;
         }
 
-        isMonitoring = true;
+        CompetitionLifecycle.setPortalMonitorRunning(true);
         playersWithEyeSpy.clear();
         playersEnteredEnd.clear();
+        scanQueue.clear();
+        queuedPlayers.clear();
+
+        // 读取一次所有在线玩家的成就状态，之后由成就事件维护
+        for (ServerPlayerEntity player : source.getServer().getPlayerManager().getPlayerList()) {
+            refreshPlayerState(player);
+        }
 
         // 启动监听任务（每秒检查一次）
-        scheduler.scheduleAtFixedRate(() -> {
+        statusTask = CompetitionScheduler.scheduleRepeating("end-portal-status",
+                CompetitionScheduler.TICKS_PER_SECOND, CompetitionScheduler.TICKS_PER_SECOND, () -> {
             try {
-                // 1. 检查所有在线玩家是否获得了"进入末地"成就
-                checkPlayersForEnterEndAchievement(source);
-
-                // 2. 对于已获得"进入末地"成就的玩家，停止监听
-                stopMonitoringForEnteredPlayers(source);
-
-                // 3. 只对未进入末地且已获得"隔墙有眼"成就的玩家进行末地门框架检查
-                checkForEndPortalFrames(source);
+                // 只对未进入末地且已获得"隔墙有眼"成就的玩家进行末地门框架检查
+                checkForEndPortalFrames();
             } catch (Exception e) {
                 System.err.println("末地门框架监听异常: " + e.getMessage());
                 e.printStackTrace();
             }
-        }, 1, 1, TimeUnit.SECONDS);
+        });
+
+        // 框架扫描任务（每tick按预算处理队列中的玩家）
+        scanTask = CompetitionScheduler.scheduleRepeating("end-portal-scan", 1, 1, SCAN_BUDGET_MICROS, () -> {
+            try {
+                processScanQueue(source);
+            } catch (Exception e) {
+                System.err.println("末地门框架扫描异常: " + e.getMessage());
+                e.printStackTrace();
+            }
+        });
 
-        // 清理过期框架记录（每分钟检查一次）
-        scheduler.scheduleAtFixedRate(() -> {
+        // 过期框架记录（每tick只检查队首）
+        expiryTask = CompetitionScheduler.scheduleRepeating("end-portal-expiry", 1, 1, () -> {
             try {
-                cleanupOldFrames();
-                // 清理离线玩家（如果他们不再在线）
-                cleanupOfflinePlayers(source);
+                expireFrames();
             } catch (Exception e) {
                 System.err.println("清理框架记录异常: " + e.getMessage());
                 e.printStackTrace();
             }
-        }, 5, 60, TimeUnit.SECONDS);
+        });
 
         // 广播监听开始消息
         for (ServerPlayerEntity player : source.getServer().getPlayerManager().getPlayerList()) {
@@ -182,16 +301,7 @@ public class EndPortalMonitorCommand {
             );
         }
 
-        source.sendMessage(
-                Text.literal("§a已启动末地门框架监听! 仅对获得'隔墙有眼'且未进入末地的玩家生效。")
-        );
-
-        // 记录到控制台
-        source.getServer().sendMessage(
-                Text.literal("[比赛系统] " + sender.getName().getString() + " 启动了末地门框架监听")
-        );
-
-        return 1;
+        return true;
     }
 
     private static int stopMonitoring(CommandContext<ServerCommandSource> context) {
@@ -203,7 +313,7 @@ public class EndPortalMonitorCommand {
             return 0;
         }
 
-        if (!isMonitoring) {
+        if (!isMonitoring()) {
             source.sendMessage(
                     Text.literal("§c末地门框架监听未在运行!")
             );
@@ -234,7 +344,7 @@ public class EndPortalMonitorCommand {
     private static int listPortals(CommandContext<ServerCommandSource> context) {
         ServerCommandSource source = context.getSource();
 
-        if (frameInfoMap.isEmpty()) {
+        if (frameStore.isEmpty()) {
             source.sendMessage(
                     Text.literal("§7当前没有发现任何末地门框架")
             );
@@ -250,8 +360,7 @@ public class EndPortalMonitorCommand {
         int index = 1;
         long currentTime = System.currentTimeMillis();
 
-        for (Map.Entry<String, FrameInfo> entry : frameInfoMap.entrySet()) {
-            FrameInfo info = entry.getValue();
+        for (FrameInfo info : frameStore.values()) {
             String dimensionName = getDimensionName(info.dimension);
 
             // 计算发现时间（分钟前）
@@ -271,8 +380,15 @@ public class EndPortalMonitorCommand {
             );
 
             // 显示框架是否仍在活动（检查方块是否存在且是否为末地门框架）
-            boolean isActive = isFrameStillActive(info.dimension, info.framePosition);
-            if (isActive) {
+            ServerWorld frameWorld = source.getServer().getWorld(info.dimension);
+            if (frameWorld == null || !frameWorld.isChunkLoaded(
+                    ChunkSectionPos.getSectionCoord(info.framePosition.getX()),
+                    ChunkSectionPos.getSectionCoord(info.framePosition.getZ()))) {
+                // 区块未加载时不去读取方块，避免加载区块
+                source.sendMessage(
+                        Text.literal("  §7方块状态: §8§l区块未加载")
+                );
+            } else if (isFrameStillActive(frameWorld, info.framePosition)) {
                 source.sendMessage(
                         Text.literal("  §a方块状态: §2§l存在")
                 );
@@ -290,7 +406,7 @@ public class EndPortalMonitorCommand {
                 Text.literal("§6使用 §e/competition clearportals §6清除所有记录")
         );
 
-        return frameInfoMap.size();
+        return frameStore.size();
     }
 
     private static int clearPortals(CommandContext<ServerCommandSource> context) {
@@ -302,23 +418,24 @@ public class EndPortalMonitorCommand {
             return 0;
         }
 
-        int clearedCount = frameInfoMap.size();
+        int clearedCount = frameStore.size();
 
         // 清除所有记录
-        detectedFrames.clear();
-        frameDetectionTime.clear();
-        frameInfoMap.clear();
-        playersWithEyeSpy.clear();
-        playersEnteredEnd.clear();
+        frameStore.clear();
+        frameIndex.clear();
+        expiryQueue.clear();
+        CompetitionState.markChanged();
+        clearScanState();
 
+        // 玩家成就状态只随成就事件和进出服务器更新，清除后不会重新读取，这里保留，继续监听框架
         source.sendMessage(
-                Text.literal("§a已清除 §e" + clearedCount + " §a个框架记录和所有玩家成就状态")
+                Text.literal("§a已清除 §e" + clearedCount + " §a个框架记录")
         );
 
         // 记录到控制台
         source.getServer().sendMessage(
                 Text.literal("[比赛系统] " + sender.getName().getString() +
-                        " 清除了所有框架记录和玩家成就状态 (" + clearedCount + "个)")
+                        " 清除了所有框架记录 (" + clearedCount + "个)")
         );
 
         return clearedCount;
@@ -335,10 +452,10 @@ public class EndPortalMonitorCommand {
 
         // 模拟发现一个末地门框架
         BlockPos testFramePos = sender.getBlockPos();
-        World world = sender.getServerWorld();
+        RegistryKey<World> dimension = sender.getServerWorld().getRegistryKey();
 
         // 测试播报（使用玩家当前位置作为发现者位置）
-        broadcastFrameDiscovery(source, testFramePos, sender.getBlockPos(), world, "测试玩家");
+        broadcastFrameDiscovery(source, testFramePos, sender.getBlockPos(), dimension, "测试玩家");
 
         source.sendMessage(
                 Text.literal("§a已发送测试末地门框架播报!")
@@ -347,6 +464,47 @@ public class EndPortalMonitorCommand {
         return 1;
     }
 
+    private static int showScanMode(CommandContext<ServerCommandSource> context) {
+        context.getSource().sendMessage(
+                Text.literal("§a当前框架扫描模式: §e" + scanMode.name().toLowerCase())
+        );
+        return 1;
+    }
+
+    private static int setScanMode(CommandContext<ServerCommandSource> context) {
+        ServerCommandSource source = context.getSource();
+        String modeName = StringArgumentType.getString(context, "mode");
+
+        ScanMode mode = null;
+        for (ScanMode candidate : ScanMode.values()) {
+            if (candidate.name().equalsIgnoreCase(modeName)) {
+                mode = candidate;
+                break;
+            }
+        }
+
+        if (mode == null) {
+            StringBuilder validModes = new StringBuilder();
+            for (ScanMode candidate : ScanMode.values()) {
+                if (!validModes.isEmpty()) {
+                    validModes.append(", ");
+                }
+                validModes.append(candidate.name().toLowerCase());
+            }
+            source.sendError(Text.literal("§c无效的扫描模式！有效模式: " + validModes));
+            return 0;
+        }
+
+        scanMode = mode;
+
+        // 切换模式后所有玩家重新完整扫描一次
+        clearScanState();
+        source.sendMessage(
+                Text.literal("§a框架扫描模式已切换为: §e" + mode.name().toLowerCase())
+        );
+        return 1;
+    }
+
     private static int checkEyeSpyStatus(CommandContext<ServerCommandSource> context) {
         ServerCommandSource source = context.getSource();
 
@@ -453,136 +611,303 @@ public class EndPortalMonitorCommand {
     }
 
     /**
-     * 检查所有在线玩家是否获得了"进入末地"成就
+     * 注册成就事件和玩家进出事件，监听状态随事件更新而不是每秒轮询
      */
-    private static void checkPlayersForEnterEndAchievement(ServerCommandSource source) {
-        for (ServerPlayerEntity player : source.getServer().getPlayerManager().getPlayerList()) {
-            if (hasEnterEndAchievement(player)) {
-                // 如果玩家获得了进入末地成就，添加到已进入列表
-                if (playersEnteredEnd.add(player.getUuid())) {
-                    // 如果是新添加的，记录到控制台
-                    source.getServer().sendMessage(
-                            Text.literal("[比赛系统] 玩家 " + player.getName().getString() +
-                                    " 已进入末地，将停止监听其末地门框架")
-                    );
-                }
-            } else {
-                // 如果玩家没有进入末地，从进入末地列表中移除
-                playersEnteredEnd.remove(player.getUuid());
+    public static void initialize() {
+        AdvancementEvents.COMPLETED.register(EndPortalMonitorCommand::onAdvancementCompleted);
+        AdvancementEvents.REVOKED.register(EndPortalMonitorCommand::onAdvancementRevoked);
+        FrameEvents.EXPIRED.register(EndPortalMonitorCommand::onFrameExpired);
+
+        // 准备阶段、启动流程和比赛中监听（跳过准备阶段直接启动时也要启动），取消或结束时停止
+        CompetitionLifecycle.PHASE_CHANGED.register((server, previous, next) -> {
+            if (next == CompetitionPhase.IDLE || next == CompetitionPhase.ENDED) {
+                cleanup();
+            } else if (!isMonitoring()) {
+                start(server.getCommandSource());
+            }
+        });
+
+        // 监听期间加入的玩家需要读取一次当前成就状态
+        ServerPlayConnectionEvents.JOIN.register((handler, sender, server) -> {
+            if (isMonitoring()) {
+                refreshPlayerState(handler.player);
+            }
+        });
+
+        // 离线玩家不再监听
+        ServerPlayConnectionEvents.DISCONNECT.register((handler, server) -> {
+            playersWithEyeSpy.remove(handler.player.getUuid());
+            playersEnteredEnd.remove(handler.player.getUuid());
+            forgetScanState(handler.player.getUuid());
+        });
+    }
+
+    private static void onAdvancementCompleted(ServerPlayerEntity player, AdvancementEntry advancement) {
+        if (!isMonitoring()) return;
+
+        if (advancement.id().equals(ENTER_END_ADVANCEMENT)) {
+            markEnteredEnd(player);
+        } else if (advancement.id().equals(EYE_SPY_ADVANCEMENT)) {
+            startWatchingPlayer(player);
+        }
+    }
+
+    private static void onAdvancementRevoked(ServerPlayerEntity player, AdvancementEntry advancement) {
+        if (!isMonitoring()) return;
+
+        if (advancement.id().equals(ENTER_END_ADVANCEMENT)) {
+            // 进入末地成就被撤销，重新判断是否需要监听
+            playersEnteredEnd.remove(player.getUuid());
+            if (hasEyeSpyAchievement(player)) {
+                startWatchingPlayer(player);
+            }
+        } else if (advancement.id().equals(EYE_SPY_ADVANCEMENT)) {
+            if (playersWithEyeSpy.remove(player.getUuid())) {
+                forgetScanState(player.getUuid());
+                player.getServer().sendMessage(
+                        Text.literal("[比赛系统] 玩家 " + player.getName().getString() +
+                                " 失去'隔墙有眼'成就状态或已进入末地，停止监听其末地门框架")
+                );
             }
         }
     }
 
     /**
-     * 停止对已进入末地玩家的监听
+     * 读取一次玩家当前的成就状态（开始监听时和玩家加入时使用）
      */
-    private static void stopMonitoringForEnteredPlayers(ServerCommandSource source) {
-        for (UUID playerId : playersEnteredEnd) {
-            // 如果该玩家在监听列表中，移除它
-            if (playersWithEyeSpy.remove(playerId)) {
-                // 获取玩家对象
-                ServerPlayerEntity player = source.getServer().getPlayerManager().getPlayer(playerId);
-                if (player != null) {
-                    // 记录到控制台
-                    source.getServer().sendMessage(
-                            Text.literal("[比赛系统] 玩家 " + player.getName().getString() +
-                                    " 已进入末地，已停止监听其末地门框架")
-                    );
-                }
+    private static void refreshPlayerState(ServerPlayerEntity player) {
+        if (hasEnterEndAchievement(player)) {
+            markEnteredEnd(player);
+        } else {
+            playersEnteredEnd.remove(player.getUuid());
+            if (hasEyeSpyAchievement(player)) {
+                startWatchingPlayer(player);
             }
         }
     }
 
     /**
-     * 检查玩家是否应该被监听（获得"隔墙有眼"且未进入末地）
+     * 玩家已进入末地，停止监听
      */
-    private static void checkPlayersForEyeSpyAchievement(ServerCommandSource source) {
-        for (ServerPlayerEntity player : source.getServer().getPlayerManager().getPlayerList()) {
-            // 跳过已进入末地的玩家
-            if (playersEnteredEnd.contains(player.getUuid())) {
-                continue;
-            }
+    private static void markEnteredEnd(ServerPlayerEntity player) {
+        if (playersEnteredEnd.add(player.getUuid())) {
+            // 如果是新添加的，记录到控制台
+            player.getServer().sendMessage(
+                    Text.literal("[比赛系统] 玩家 " + player.getName().getString() +
+                            " 已进入末地，将停止监听其末地门框架")
+            );
+        }
 
-            if (hasEyeSpyAchievement(player)) {
-                // 如果玩家获得了成就且未进入末地，添加到监听列表
-                if (playersWithEyeSpy.add(player.getUuid())) {
-                    // 如果是新添加的，记录到控制台
-                    source.getServer().sendMessage(
-                            Text.literal("[比赛系统] 玩家 " + player.getName().getString() +
-                                    " 已获得'隔墙有眼'成就且未进入末地，开始监听其末地门框架")
-                    );
-                }
-            } else {
-                // 如果玩家没有成就，从监听列表中移除
-                if (playersWithEyeSpy.remove(player.getUuid())) {
-                    // 如果是刚移除的，记录到控制台
-                    source.getServer().sendMessage(
-                            Text.literal("[比赛系统] 玩家 " + player.getName().getString() +
-                                    " 失去'隔墙有眼'成就状态或已进入末地，停止监听其末地门框架")
-                    );
-                }
-            }
+        if (playersWithEyeSpy.remove(player.getUuid())) {
+            forgetScanState(player.getUuid());
+            player.getServer().sendMessage(
+                    Text.literal("[比赛系统] 玩家 " + player.getName().getString() +
+                            " 已进入末地，已停止监听其末地门框架")
+            );
         }
     }
 
     /**
-     * 清理离线玩家
+     * 玩家获得"隔墙有眼"且未进入末地，开始监听
      */
-    private static void cleanupOfflinePlayers(ServerCommandSource source) {
-        Set<UUID> onlinePlayers = new HashSet<>();
+    private static void startWatchingPlayer(ServerPlayerEntity player) {
+        if (playersEnteredEnd.contains(player.getUuid())) {
+            return;
+        }
 
-        // 收集所有在线玩家的UUID
-        for (ServerPlayerEntity player : source.getServer().getPlayerManager().getPlayerList()) {
-            onlinePlayers.add(player.getUuid());
+        if (playersWithEyeSpy.add(player.getUuid())) {
+            // 如果是新添加的，记录到控制台
+            player.getServer().sendMessage(
+                    Text.literal("[比赛系统] 玩家 " + player.getName().getString() +
+                            " 已获得'隔墙有眼'成就且未进入末地，开始监听其末地门框架")
+            );
         }
+    }
 
-        // 从监听列表中移除离线玩家
-        playersWithEyeSpy.removeIf(uuid -> !onlinePlayers.contains(uuid));
-        playersEnteredEnd.removeIf(uuid -> !onlinePlayers.contains(uuid));
+    private static void checkForEndPortalFrames() {
+        // 只将符合条件的玩家加入扫描队列，由扫描任务按时间预算分批处理
+        for (UUID playerId : playersWithEyeSpy) {
+            if (queuedPlayers.add(playerId)) {
+                scanQueue.addLast(playerId);
+            }
+        }
     }
 
-    private static void checkForEndPortalFrames(ServerCommandSource source) {
-        // 先检查哪些玩家应该被监听（获得隔墙有眼且未进入末地）
-        checkPlayersForEyeSpyAchievement(source);
+    private static void processScanQueue(ServerCommandSource source) {
+        // 处理上一个tick提交的快照扫描结果
+        for (FrameSnapshotScanner.Hit hit : snapshotScanner.drain()) {
+            handleFrameCandidate(hit.dimension(), hit.framePos(), hit.discoverer(), hit.playerPos(), source);
+        }
 
-        // 只检查符合条件的玩家周围区域的末地门框架
-        for (ServerPlayerEntity player : source.getServer().getPlayerManager().getPlayerList()) {
-            if (playersWithEyeSpy.contains(player.getUuid())) {
+        while (!scanQueue.isEmpty() && scanTask.hasBudgetRemaining()) {
+            UUID playerId = scanQueue.pollFirst();
+            queuedPlayers.remove(playerId);
+
+            ServerPlayerEntity player = source.getServer().getPlayerManager().getPlayer(playerId);
+            if (player != null && playersWithEyeSpy.contains(playerId)) {
                 checkPlayerAreaForFrames(player, source);
+            } else {
+                // 不再监听的玩家下次重新开始时需要完整扫描
+                forgetScanState(playerId);
             }
         }
+
+        snapshotScanner.submit();
     }
 
+    /**
+     * 扫描玩家周围区域
+     * 记住每个玩家上次扫描的范围，移动后只扫描新进入范围的部分，静止不动的玩家不做任何扫描；
+     * 首次扫描、切换维度或传送（新旧范围不重叠）时才扫描整个范围
+     */
     private static void checkPlayerAreaForFrames(ServerPlayerEntity player, ServerCommandSource source) {
-        World world = player.getServerWorld();
+        if (scanMode == ScanMode.STRUCTURE) {
+            checkPlayerInPortalRoom(player, source);
+            return;
+        }
+
+        ServerWorld world = player.getServerWorld();
         BlockPos playerPos = player.getBlockPos();
+        RegistryKey<World> dimension = world.getRegistryKey();
+
+        int x = playerPos.getX();
+        int y = playerPos.getY();
+        int z = playerPos.getZ();
+
+        ScanWindow previous = scanWindows.put(player.getUuid(), new ScanWindow(dimension, x, y, z));
+
+        int minX = x - SCAN_RADIUS;
+        int maxX = x + SCAN_RADIUS;
+        int minY = y - SCAN_VERTICAL_RADIUS;
+        int maxY = y + SCAN_VERTICAL_RADIUS;
+        int minZ = z - SCAN_RADIUS;
+        int maxZ = z + SCAN_RADIUS;
+
+        if (previous == null || previous.dimension() != dimension || !previous.overlaps(x, y, z)) {
+            scanRegion(world, minX, maxX, minY, maxY, minZ, maxZ, player, playerPos, source);
+            return;
+        }
+
+        int dx = x - previous.x();
+        int dy = y - previous.y();
+        int dz = z - previous.z();
+
+        // 玩家没有移动
+        if (dx == 0 && dy == 0 && dz == 0) {
+            return;
+        }
+
+        int oldMinX = previous.x() - SCAN_RADIUS;
+        int oldMaxX = previous.x() + SCAN_RADIUS;
+        int oldMinY = previous.y() - SCAN_VERTICAL_RADIUS;
+        int oldMaxY = previous.y() + SCAN_VERTICAL_RADIUS;
+        int oldMinZ = previous.z() - SCAN_RADIUS;
+        int oldMaxZ = previous.z() + SCAN_RADIUS;
+
+        // 1. X方向新进入的部分
+        if (dx > 0) {
+            scanRegion(world, oldMaxX + 1, maxX, minY, maxY, minZ, maxZ, player, playerPos, source);
+        } else if (dx < 0) {
+            scanRegion(world, minX, oldMinX - 1, minY, maxY, minZ, maxZ, player, playerPos, source);
+        }
+        int keptMinX = Math.max(minX, oldMinX);
+        int keptMaxX = Math.min(maxX, oldMaxX);
+
+        // 2. Z方向新进入的部分（不含已扫描的X部分）
+        if (dz > 0) {
+            scanRegion(world, keptMinX, keptMaxX, minY, maxY, oldMaxZ + 1, maxZ, player, playerPos, source);
+        } else if (dz < 0) {
+            scanRegion(world, keptMinX, keptMaxX, minY, maxY, minZ, oldMinZ - 1, player, playerPos, source);
+        }
+        int keptMinZ = Math.max(minZ, oldMinZ);
+        int keptMaxZ = Math.min(maxZ, oldMaxZ);
+
+        // 3. Y方向新进入的部分
+        if (dy > 0) {
+            scanRegion(world, keptMinX, keptMaxX, oldMaxY + 1, maxY, keptMinZ, keptMaxZ, player, playerPos, source);
+        } else if (dy < 0) {
+            scanRegion(world, keptMinX, keptMaxX, minY, oldMinY - 1, keptMinZ, keptMaxZ, player, playerPos, source);
+        }
+    }
+
+    /**
+     * 按当前扫描模式扫描一个长方体区域（坐标均包含边界）
+     */
+    private static void scanRegion(ServerWorld world, int minX, int maxX, int minY, int maxY, int minZ, int maxZ,
+                                   ServerPlayerEntity player, BlockPos playerPos, ServerCommandSource source) {
+        minY = Math.max(minY, world.getBottomY());
+        maxY = Math.min(maxY, world.getTopY() - 1);
+
+        if (minX > maxX || minY > maxY || minZ > maxZ) {
+            return;
+        }
+
+        if (scanMode == ScanMode.PALETTE) {
+            scanRegionWithPalette(world, minX, maxX, minY, maxY, minZ, maxZ, player, playerPos, source);
+            return;
+        }
+
+        if (scanMode == ScanMode.SNAPSHOT) {
+            snapshotScanner.capture(world, minX, maxX, minY, maxY, minZ, maxZ, playerPos, player.getName().getString());
+            return;
+        }
 
-        int radius = 10;
+        BlockPos.Mutable mutablePos = new BlockPos.Mutable();
 
-        for (int dx = -radius; dx <= radius; dx++) {
-            for (int dz = -radius; dz <= radius; dz++) {
-                for (int dy = -5; dy <= 5; dy++) {
-                    BlockPos checkPos = playerPos.add(dx, dy, dz);
+        for (int x = minX; x <= maxX; x++) {
+            for (int z = minZ; z <= maxZ; z++) {
+                for (int y = minY; y <= maxY; y++) {
+                    mutablePos.set(x, y, z);
 
                     // 检查是否是末地门框架方块
-                    if (isEndPortalFrameBlock(world, checkPos)) {
-                        // 检查是否已有框架在附近
-                        if (!isFrameNearExistingFrames(world, checkPos)) {
-                            // 生成唯一标识符
-                            String frameKey = generateFrameKey(world, checkPos);
-
-                            // 检查是否已发现过且未过期
-                            if (!isFrameRecentlyDetected(frameKey)) {
-                                // 记录新的框架
-                                detectedFrames.add(frameKey);
-                                frameDetectionTime.put(frameKey, System.currentTimeMillis());
-
-                                // 创建框架信息（记录玩家当前位置）
-                                FrameInfo frameInfo = new FrameInfo(checkPos, playerPos, world, player.getName().getString());
-                                frameInfoMap.put(frameKey, frameInfo);
-
-                                // 全局播报
-                                broadcastFrameDiscovery(source, checkPos, playerPos, world, player.getName().getString());
+                    if (isEndPortalFrameBlock(world, mutablePos)) {
+                        handleFrameCandidate(world.getRegistryKey(), mutablePos.toImmutable(), player.getName().getString(), playerPos, source);
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * 按区块段扫描区域，调色板中不含末地门框架的区块段直接跳过
+     * 只读取已加载的区块，不会触发区块加载
+     */
+    private static void scanRegionWithPalette(ServerWorld world, int minX, int maxX, int minY, int maxY, int minZ, int maxZ,
+                                              ServerPlayerEntity player, BlockPos playerPos, ServerCommandSource source) {
+        BlockPos.Mutable mutablePos = new BlockPos.Mutable();
+
+        for (int chunkX = minX >> 4; chunkX <= maxX >> 4; chunkX++) {
+            for (int chunkZ = minZ >> 4; chunkZ <= maxZ >> 4; chunkZ++) {
+                Chunk chunk = world.getChunk(chunkX, chunkZ, ChunkStatus.FULL, false);
+                if (chunk == null) {
+                    continue;
+                }
+
+                // 与扫描范围相交的部分
+                int fromX = Math.max(minX, chunkX << 4);
+                int toX = Math.min(maxX, (chunkX << 4) + 15);
+                int fromZ = Math.max(minZ, chunkZ << 4);
+                int toZ = Math.min(maxZ, (chunkZ << 4) + 15);
+
+                for (int sectionY = minY >> 4; sectionY <= maxY >> 4; sectionY++) {
+                    ChunkSection section = chunk.getSection(chunk.sectionCoordToIndex(sectionY));
+
+                    // 调色板预筛选：区块段中不可能存在末地门框架时跳过
+                    if (section.isEmpty() || !section.hasAny(EndPortalMonitorCommand::isEndPortalFrameState)) {
+                        continue;
+                    }
+
+                    int fromY = Math.max(minY, sectionY << 4);
+                    int toY = Math.min(maxY, (sectionY << 4) + 15);
+
+                    for (int x = fromX; x <= toX; x++) {
+                        for (int z = fromZ; z <= toZ; z++) {
+                            for (int y = fromY; y <= toY; y++) {
+                                BlockState state = section.getBlockState(x & 15, y & 15, z & 15);
+                                if (isEndPortalFrameState(state)) {
+                                    mutablePos.set(x, y, z);
+                                    handleFrameCandidate(world.getRegistryKey(), mutablePos.toImmutable(), player.getName().getString(), playerPos, source);
+                                }
                             }
                         }
                     }
@@ -591,53 +916,147 @@ public class EndPortalMonitorCommand {
         }
     }
 
-    private static boolean isFrameNearExistingFrames(World world, BlockPos pos) {
-        String currentDimension = world.getRegistryKey().getValue().toString();
+    /**
+     * 结构模式：玩家进入要塞传送门房间的范围时播报，房间中心作为框架位置
+     */
+    private static void checkPlayerInPortalRoom(ServerPlayerEntity player, ServerCommandSource source) {
+        ServerWorld world = player.getServerWorld();
+        BlockPos playerPos = player.getBlockPos();
+        ChunkPos chunkPos = player.getChunkPos();
+        RegistryKey<World> dimension = world.getRegistryKey();
+
+        PortalRoomWindow window = portalRoomWindows.get(player.getUuid());
+        if (window == null || window.dimension() != dimension
+                || window.chunkX() != chunkPos.x || window.chunkZ() != chunkPos.z) {
+            List<BlockBox> rooms = findPortalRooms(world, chunkPos);
+            if (rooms == null) {
+                // 有要塞的起始区块还没加载，下次检查时重新查询
+                return;
+            }
+            window = new PortalRoomWindow(dimension, chunkPos.x, chunkPos.z, rooms);
+            portalRoomWindows.put(player.getUuid(), window);
+        }
+
+        for (BlockBox room : window.rooms()) {
+            if (room.contains(playerPos)) {
+                handleFrameCandidate(dimension, room.getCenter(), player.getName().getString(), playerPos, source);
+            }
+        }
+    }
+
+    /**
+     * 查询与区块相交的要塞中所有传送门房间的范围
+     * 只读取已加载区块中的结构引用和结构起点，不会在服务器线程上加载区块；
+     * 有起始区块还没加载时返回null
+     */
+    private static List<BlockBox> findPortalRooms(ServerWorld world, ChunkPos chunkPos) {
+        Structure stronghold = world.getRegistryManager().get(RegistryKeys.STRUCTURE).get(StructureKeys.STRONGHOLD);
+        if (stronghold == null) {
+            return List.of();
+        }
+
+        Chunk chunk = world.getChunk(chunkPos.x, chunkPos.z, ChunkStatus.STRUCTURE_REFERENCES, false);
+        if (chunk == null) {
+            return null;
+        }
+
+        Map<Long, List<BlockBox>> cache = strongholdRooms.computeIfAbsent(world.getRegistryKey(), k -> new HashMap<>());
+        List<BlockBox> rooms = new ArrayList<>();
+        for (long startChunk : chunk.getStructureReferences(stronghold)) {
+            List<BlockBox> startRooms = cache.get(startChunk);
+            if (startRooms == null) {
+                startRooms = resolvePortalRooms(world, stronghold, startChunk);
+                if (startRooms == null) {
+                    return null;
+                }
+                cache.put(startChunk, startRooms);
+            }
+            rooms.addAll(startRooms);
+        }
+        return rooms;
+    }
+
+    // 从已加载的起始区块读取一个要塞的传送门房间，起始区块未加载时返回null
+    private static List<BlockBox> resolvePortalRooms(ServerWorld world, Structure stronghold, long startChunk) {
+        Chunk chunk = world.getChunk(ChunkPos.getPackedX(startChunk), ChunkPos.getPackedZ(startChunk),
+                ChunkStatus.STRUCTURE_STARTS, false);
+        if (chunk == null) {
+            return null;
+        }
+
+        StructureStart start = chunk.getStructureStart(stronghold);
+        if (start == null || !start.hasChildren()) {
+            return List.of();
+        }
+
+        List<BlockBox> rooms = new ArrayList<>();
+        for (StructurePiece piece : start.getChildren()) {
+            if (piece instanceof StrongholdGenerator.PortalRoom) {
+                rooms.add(piece.getBoundingBox());
+            }
+        }
+        return rooms;
+    }
 
-        // 检查当前维度中是否有已记录的框架距离太近
-        for (Map.Entry<String, FrameInfo> entry : frameInfoMap.entrySet()) {
-            FrameInfo existingFrame = entry.getValue();
+    private static void forgetScanState(UUID playerId) {
+        scanWindows.remove(playerId);
+        portalRoomWindows.remove(playerId);
+    }
 
-            // 检查是否在同一维度
-            if (existingFrame.dimension.getRegistryKey().getValue().toString().equals(currentDimension)) {
-                // 计算距离
-                double distance = existingFrame.distanceTo(pos);
+    private static void clearScanState() {
+        scanWindows.clear();
+        portalRoomWindows.clear();
+        strongholdRooms.clear();
+        snapshotScanner.reset();
+    }
 
-                // 如果距离小于最小距离阈值，认为是同一个框架区域
-                if (distance < FRAME_MIN_DISTANCE) {
-                    return true;
+    private static void handleFrameCandidate(RegistryKey<World> dimension, BlockPos checkPos, String discoverer, BlockPos playerPos, ServerCommandSource source) {
+        // 检查是否已有框架在附近
+        if (!isFrameNearExistingFrames(dimension, checkPos)) {
+            // 检查是否已发现过且未过期
+            if (!isFrameRecentlyDetected(dimension, checkPos)) {
+                // 创建框架信息（记录玩家当前位置）
+                FrameInfo frameInfo = new FrameInfo(checkPos, playerPos, dimension, discoverer);
+                FrameInfo previous = frameStore.put(frameInfo);
+                if (previous != null) {
+                    frameIndex.remove(previous.dimension, previous);
                 }
+                expiryQueue.addLast(frameInfo);
+                frameIndex.add(dimension, frameInfo);
+                CompetitionState.markChanged();
+
+                // 全局播报
+                broadcastFrameDiscovery(source, checkPos, playerPos, dimension, discoverer);
             }
         }
+    }
 
-        return false;
+    private static boolean isFrameNearExistingFrames(RegistryKey<World> dimension, BlockPos pos) {
+        // 只检查同一维度中相邻格子里的框架，距离小于最小距离阈值认为是同一个框架区域
+        return frameIndex.hasFrameWithin(dimension, pos, FRAME_MIN_DISTANCE);
     }
 
     private static boolean isEndPortalFrameBlock(World world, BlockPos pos) {
-        BlockState state = world.getBlockState(pos);
+        return isEndPortalFrameState(world.getBlockState(pos));
+    }
 
+    private static boolean isEndPortalFrameState(BlockState state) {
         // 检查是否是末地门框架方块
         return state.getBlock() instanceof EndPortalFrameBlock || state.isOf(Blocks.END_PORTAL_FRAME);
     }
 
-    private static String generateFrameKey(World world, BlockPos pos) {
-        // 使用维度ID和坐标创建唯一键
-        return world.getRegistryKey().getValue().toString() + ":" +
-                pos.getX() + ":" + pos.getY() + ":" + pos.getZ();
-    }
-
-    private static boolean isFrameRecentlyDetected(String frameKey) {
-        Long detectionTime = frameDetectionTime.get(frameKey);
-        if (detectionTime == null) {
+    private static boolean isFrameRecentlyDetected(RegistryKey<World> dimension, BlockPos pos) {
+        FrameInfo frameInfo = frameStore.get(dimension, pos);
+        if (frameInfo == null) {
             return false;
         }
 
         // 检查是否在过期时间内
-        return (System.currentTimeMillis() - detectionTime) < FRAME_EXPIRE_TIME;
+        return (System.currentTimeMillis() - frameInfo.discoveryTime) < FRAME_EXPIRE_TIME;
     }
 
-    private static void broadcastFrameDiscovery(ServerCommandSource source, BlockPos framePos, BlockPos playerPos, World world, String discoverer) {
-        String dimensionName = getDimensionName(world);
+    private static void broadcastFrameDiscovery(ServerCommandSource source, BlockPos framePos, BlockPos playerPos, RegistryKey<World> dimension, String discoverer) {
+        String dimensionName = getDimensionName(dimension);
         String playerCoordinates = formatCoordinates(playerPos);
         String frameCoordinates = formatCoordinates(framePos);
 
@@ -664,9 +1083,7 @@ public class EndPortalMonitorCommand {
         );
     }
 
-    private static String getDimensionName(World world) {
-        net.minecraft.registry.RegistryKey<World> key = world.getRegistryKey();
-
+    private static String getDimensionName(RegistryKey<World> key) {
         if (key == World.OVERWORLD) {
             return "主世界";
         } else if (key == World.NETHER) {
@@ -688,54 +1105,137 @@ public class EndPortalMonitorCommand {
         return state.getBlock() instanceof EndPortalFrameBlock || state.isOf(Blocks.END_PORTAL_FRAME);
     }
 
-    private static void cleanupOldFrames() {
+    private static void expireFrames() {
         long currentTime = System.currentTimeMillis();
-        List<String> toRemove = new ArrayList<>();
+        int expiredCount = 0;
+
+        // 只处理已到期的队首记录
+        while (!expiryQueue.isEmpty() && currentTime - expiryQueue.peekFirst().discoveryTime >= FRAME_EXPIRE_TIME) {
+            FrameInfo frame = expiryQueue.pollFirst();
 
-        // 找出过期的框架记录
-        for (Map.Entry<String, Long> entry : frameDetectionTime.entrySet()) {
-            if ((currentTime - entry.getValue()) > FRAME_EXPIRE_TIME) {
-                toRemove.add(entry.getKey());
+            // 已被替换或清除的记录直接丢弃
+            if (!frameStore.contains(frame)) {
+                continue;
             }
+
+            frameStore.remove(frame);
+            frameIndex.remove(frame.dimension, frame);
+            expiredCount++;
+
+            FrameEvents.EXPIRED.invoker().onExpired(frame);
         }
 
-        // 移除过期记录
-        for (String key : toRemove) {
-            detectedFrames.remove(key);
-            frameDetectionTime.remove(key);
-            frameInfoMap.remove(key);
+        if (expiredCount > 0) {
+            CompetitionState.markChanged();
+            System.out.println("[比赛系统] 清理了 " + expiredCount + " 个过期的框架记录");
         }
+    }
 
-        if (!toRemove.isEmpty()) {
-            System.out.println("[比赛系统] 清理了 " + toRemove.size() + " 个过期的框架记录");
+    /**
+     * 框架记录过期后，让扫描范围覆盖该框架的玩家重新完整扫描一次，以便再次播报
+     */
+    private static void onFrameExpired(FrameInfo frame) {
+        BlockPos pos = frame.framePosition;
+        List<UUID> toRescan = new ArrayList<>();
+
+        for (Map.Entry<UUID, ScanWindow> entry : scanWindows.entrySet()) {
+            ScanWindow window = entry.getValue();
+            if (window.dimension() == frame.dimension
+                    && Math.abs(pos.getX() - window.x()) <= SCAN_RADIUS
+                    && Math.abs(pos.getY() - window.y()) <= SCAN_VERTICAL_RADIUS
+                    && Math.abs(pos.getZ() - window.z()) <= SCAN_RADIUS) {
+                toRescan.add(entry.getKey());
+            }
+        }
+
+        for (UUID playerId : toRescan) {
+            scanWindows.remove(playerId);
         }
     }
 
     private static void cleanup() {
-        isMonitoring = false;
-        if (scheduler != null && !scheduler.isShutdown()) {
-            scheduler.shutdownNow();
-            scheduler = null;
-        }
+        CompetitionLifecycle.setPortalMonitorRunning(false);
+        CompetitionScheduler.cancel(statusTask);
+        CompetitionScheduler.cancel(scanTask);
+        CompetitionScheduler.cancel(expiryTask);
+        statusTask = null;
+        scanTask = null;
+        expiryTask = null;
+        scanQueue.clear();
+        queuedPlayers.clear();
+        clearScanState();
     }
 
     // 清理资源的方法
     public static void onServerStop() {
         cleanup();
-        detectedFrames.clear();
-        frameDetectionTime.clear();
-        frameInfoMap.clear();
+        frameStore.clear();
+        frameIndex.clear();
+        expiryQueue.clear();
+        snapshotScanner.shutdown();
         playersWithEyeSpy.clear();
         playersEnteredEnd.clear();
     }
 
+    // 保存未过期的框架记录
+    static NbtCompound writeState() {
+        NbtList frames = new NbtList();
+        for (FrameInfo frame : frameStore.values()) {
+            NbtCompound nbt = new NbtCompound();
+            nbt.putString("dimension", frame.dimension.getValue().toString());
+            nbt.putLong("pos", frame.framePosition.asLong());
+            nbt.putLong("discovererPos", frame.discovererPosition.asLong());
+            nbt.putString("discoveredBy", frame.discoveredBy);
+            nbt.putLong("time", frame.discoveryTime);
+            frames.add(nbt);
+        }
+
+        NbtCompound nbt = new NbtCompound();
+        nbt.put("frames", frames);
+        return nbt;
+    }
+
+    static void readState(NbtCompound nbt) {
+        frameStore.clear();
+        frameIndex.clear();
+        expiryQueue.clear();
+
+        List<FrameInfo> frames = new ArrayList<>();
+        for (NbtElement element : nbt.getList("frames", NbtElement.COMPOUND_TYPE)) {
+            NbtCompound frameNbt = (NbtCompound) element;
+            Identifier dimensionId = Identifier.tryParse(frameNbt.getString("dimension"));
+            if (dimensionId == null) {
+                continue;
+            }
+
+            frames.add(new FrameInfo(
+                    BlockPos.fromLong(frameNbt.getLong("pos")),
+                    BlockPos.fromLong(frameNbt.getLong("discovererPos")),
+                    RegistryKey.of(RegistryKeys.WORLD, dimensionId),
+                    frameNbt.getString("discoveredBy"),
+                    frameNbt.getLong("time")
+            ));
+        }
+
+        // 过期队列要求按发现时间排列
+        frames.sort(Comparator.comparingLong(frame -> frame.discoveryTime));
+        for (FrameInfo frame : frames) {
+            FrameInfo previous = frameStore.put(frame);
+            if (previous != null) {
+                frameIndex.remove(previous.dimension, previous);
+            }
+            frameIndex.add(frame.dimension, frame);
+            expiryQueue.addLast(frame);
+        }
+    }
+
     // 获取监听状态的方法（供其他类使用）
     public static boolean isMonitoring() {
-        return isMonitoring;
+        return CompetitionLifecycle.snapshot().portalMonitorRunning();
     }
 
     // 获取已发现的框架数量
     public static int getDetectedFrameCount() {
-        return frameInfoMap.size();
+        return frameStore.size();
     }
 }
\ No newline at end of file
@@ -0,0 +1,26 @@
+package aysta3045.command;
+
+import net.fabricmc.fabric.api.event.Event;
+import net.fabricmc.fabric.api.event.EventFactory;
+
+/**
+ * 末地门框架记录事件
+ */
+public final class FrameEvents {
+
+    // 框架记录到期被移除，该位置之后可以再次播报
+    public static final Event<Expired> EXPIRED = EventFactory.createArrayBacked(Expired.class,
+            listeners -> frame -> {
+                for (Expired listener : listeners) {
+                    listener.onExpired(frame);
+                }
+            });
+
+    private FrameEvents() {
+    }
+
+    @FunctionalInterface
+    public interface Expired {
+        void onExpired(EndPortalMonitorCommand.FrameInfo frame);
+    }
+}
@@ -0,0 +1,186 @@
+package aysta3045.command;
+
+import it.unimi.dsi.fastutil.longs.Long2ObjectOpenHashMap;
+import net.minecraft.block.BlockState;
+import net.minecraft.registry.RegistryKey;
+import net.minecraft.server.world.ServerWorld;
+import net.minecraft.util.math.BlockPos;
+import net.minecraft.util.math.ChunkSectionPos;
+import net.minecraft.world.World;
+import net.minecraft.world.chunk.Chunk;
+import net.minecraft.world.chunk.ChunkSection;
+import net.minecraft.world.chunk.ChunkStatus;
+import net.minecraft.world.chunk.PalettedContainer;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinWorkerThread;
+import java.util.function.Predicate;
+
+/**
+ * 基于区块段快照的并行框架扫描
+ * 服务器线程只负责复制已加载区块中可能包含末地门框架的区块段数据（每个区块段每tick最多复制一次），
+ * 逐方块的扫描在后台线程池中对快照进行，结果在下一个tick由服务器线程取回处理
+ */
+class FrameSnapshotScanner {
+
+    // 扫描到的框架位置
+    record Hit(RegistryKey<World> dimension, BlockPos framePos, BlockPos playerPos, String discoverer, int generation) {
+    }
+
+    // 一个区块段快照中需要扫描的范围（坐标均包含边界）
+    private record SectionJob(RegistryKey<World> dimension, PalettedContainer<BlockState> states,
+                              int fromX, int toX, int fromY, int toY, int fromZ, int toZ,
+                              BlockPos playerPos, String discoverer) {
+    }
+
+    private final Predicate<BlockState> framePredicate;
+
+    // 本tick已复制的区块段，多个玩家的扫描范围重叠时共用同一份快照
+    private final Map<RegistryKey<World>, Long2ObjectOpenHashMap<PalettedContainer<BlockState>>> tickSnapshots = new HashMap<>();
+
+    // 本tick待提交的扫描任务
+    private List<SectionJob> batch = new ArrayList<>();
+
+    // 后台线程的扫描结果
+    private final ConcurrentLinkedQueue<Hit> results = new ConcurrentLinkedQueue<>();
+
+    // 重置后递增，用来丢弃重置前提交的扫描结果
+    private volatile int generation = 0;
+
+    private ForkJoinPool pool;
+
+    FrameSnapshotScanner(Predicate<BlockState> framePredicate) {
+        this.framePredicate = framePredicate;
+    }
+
+    /**
+     * 为一个长方体区域复制区块段快照（只能在服务器线程调用）
+     * 只读取已加载的区块，调色板中不含末地门框架的区块段不复制
+     */
+    void capture(ServerWorld world, int minX, int maxX, int minY, int maxY, int minZ, int maxZ,
+                 BlockPos playerPos, String discoverer) {
+        RegistryKey<World> dimension = world.getRegistryKey();
+        Long2ObjectOpenHashMap<PalettedContainer<BlockState>> snapshots =
+                tickSnapshots.computeIfAbsent(dimension, k -> new Long2ObjectOpenHashMap<>());
+
+        for (int chunkX = minX >> 4; chunkX <= maxX >> 4; chunkX++) {
+            for (int chunkZ = minZ >> 4; chunkZ <= maxZ >> 4; chunkZ++) {
+                Chunk chunk = world.getChunk(chunkX, chunkZ, ChunkStatus.FULL, false);
+                if (chunk == null) {
+                    continue;
+                }
+
+                for (int sectionY = minY >> 4; sectionY <= maxY >> 4; sectionY++) {
+                    long sectionKey = ChunkSectionPos.asLong(chunkX, sectionY, chunkZ);
+                    PalettedContainer<BlockState> states = snapshots.get(sectionKey);
+
+                    if (states == null && !snapshots.containsKey(sectionKey)) {
+                        ChunkSection section = chunk.getSection(chunk.sectionCoordToIndex(sectionY));
+
+                        // 调色板预筛选：不可能存在末地门框架的区块段记为null，不复制
+                        if (!section.isEmpty() && section.hasAny(framePredicate)) {
+                            states = section.getBlockStateContainer().copy();
+                        }
+                        snapshots.put(sectionKey, states);
+                    }
+
+                    if (states == null) {
+                        continue;
+                    }
+
+                    batch.add(new SectionJob(dimension, states,
+                            Math.max(minX, chunkX << 4), Math.min(maxX, (chunkX << 4) + 15),
+                            Math.max(minY, sectionY << 4), Math.min(maxY, (sectionY << 4) + 15),
+                            Math.max(minZ, chunkZ << 4), Math.min(maxZ, (chunkZ << 4) + 15),
+                            playerPos, discoverer));
+                }
+            }
+        }
+    }
+
+    /**
+     * 把本tick收集的快照交给后台线程池并行扫描
+     */
+    void submit() {
+        tickSnapshots.clear();
+
+        if (batch.isEmpty()) {
+            return;
+        }
+
+        List<SectionJob> jobs = batch;
+        batch = new ArrayList<>();
+        int jobGeneration = generation;
+
+        getPool().execute(() -> {
+            try {
+                jobs.parallelStream().forEach(job -> scan(job, jobGeneration));
+            } catch (Exception e) {
+                System.err.println("框架快照扫描异常: " + e.getMessage());
+                e.printStackTrace();
+            }
+        });
+    }
+
+    private void scan(SectionJob job, int jobGeneration) {
+        for (int x = job.fromX(); x <= job.toX(); x++) {
+            for (int z = job.fromZ(); z <= job.toZ(); z++) {
+                for (int y = job.fromY(); y <= job.toY(); y++) {
+                    if (framePredicate.test(job.states().get(x & 15, y & 15, z & 15))) {
+                        results.add(new Hit(job.dimension(), new BlockPos(x, y, z), job.playerPos(), job.discoverer(), jobGeneration));
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * 取回已完成的扫描结果（只能在服务器线程调用）
+     */
+    List<Hit> drain() {
+        List<Hit> hits = new ArrayList<>();
+        Hit hit;
+        while ((hit = results.poll()) != null) {
+            if (hit.generation() == generation) {
+                hits.add(hit);
+            }
+        }
+        return hits;
+    }
+
+    /**
+     * 丢弃所有未提交的快照和尚未取回的结果
+     */
+    void reset() {
+        generation++;
+        tickSnapshots.clear();
+        batch.clear();
+        results.clear();
+    }
+
+    void shutdown() {
+        reset();
+        if (pool != null) {
+            pool.shutdownNow();
+            pool = null;
+        }
+    }
+
+    private ForkJoinPool getPool() {
+        if (pool == null) {
+            int parallelism = Math.max(1, Runtime.getRuntime().availableProcessors() - 1);
+            pool = new ForkJoinPool(parallelism, forkJoinPool -> {
+                ForkJoinWorkerThread thread = ForkJoinPool.defaultForkJoinWorkerThreadFactory.newThread(forkJoinPool);
+                thread.setName("Competition-FrameScan-" + thread.getPoolIndex());
+                thread.setDaemon(true);
+                return thread;
+            }, null, false);
+        }
+        return pool;
+    }
+}
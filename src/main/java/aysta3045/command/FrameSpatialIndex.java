@@ -0,0 +1,97 @@
+package aysta3045.command;
+
+import it.unimi.dsi.fastutil.longs.Long2ObjectOpenHashMap;
+import net.minecraft.registry.RegistryKey;
+import net.minecraft.util.math.BlockPos;
+import net.minecraft.world.World;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 末地门框架的空间哈希索引
+ * 按维度划分，每个维度内以边长为 cellSize 的立方体网格存放框架，
+ * 查询距离小于 cellSize 的框架时只需检查相邻的27个格子
+ */
+class FrameSpatialIndex {
+
+    private final int cellSize;
+    private final Map<RegistryKey<World>, Long2ObjectOpenHashMap<List<EndPortalMonitorCommand.FrameInfo>>> dimensions = new HashMap<>();
+
+    FrameSpatialIndex(int cellSize) {
+        this.cellSize = cellSize;
+    }
+
+    void add(RegistryKey<World> dimension, EndPortalMonitorCommand.FrameInfo frame) {
+        BlockPos pos = frame.framePosition;
+        long cellKey = cellKey(cellCoord(pos.getX()), cellCoord(pos.getY()), cellCoord(pos.getZ()));
+
+        dimensions.computeIfAbsent(dimension, k -> new Long2ObjectOpenHashMap<>())
+                .computeIfAbsent(cellKey, k -> new ArrayList<>(2))
+                .add(frame);
+    }
+
+    void remove(RegistryKey<World> dimension, EndPortalMonitorCommand.FrameInfo frame) {
+        Long2ObjectOpenHashMap<List<EndPortalMonitorCommand.FrameInfo>> cells = dimensions.get(dimension);
+        if (cells == null) {
+            return;
+        }
+
+        BlockPos pos = frame.framePosition;
+        long cellKey = cellKey(cellCoord(pos.getX()), cellCoord(pos.getY()), cellCoord(pos.getZ()));
+
+        List<EndPortalMonitorCommand.FrameInfo> frames = cells.get(cellKey);
+        if (frames != null && frames.remove(frame) && frames.isEmpty()) {
+            cells.remove(cellKey);
+        }
+    }
+
+    /**
+     * 检查维度中是否存在与 pos 距离小于 distance 的框架（distance 不能超过 cellSize）
+     */
+    boolean hasFrameWithin(RegistryKey<World> dimension, BlockPos pos, int distance) {
+        Long2ObjectOpenHashMap<List<EndPortalMonitorCommand.FrameInfo>> cells = dimensions.get(dimension);
+        if (cells == null || cells.isEmpty()) {
+            return false;
+        }
+
+        long maxSquaredDistance = (long) distance * distance;
+        int cellX = cellCoord(pos.getX());
+        int cellY = cellCoord(pos.getY());
+        int cellZ = cellCoord(pos.getZ());
+
+        for (int dx = -1; dx <= 1; dx++) {
+            for (int dy = -1; dy <= 1; dy++) {
+                for (int dz = -1; dz <= 1; dz++) {
+                    List<EndPortalMonitorCommand.FrameInfo> frames = cells.get(cellKey(cellX + dx, cellY + dy, cellZ + dz));
+                    if (frames == null) {
+                        continue;
+                    }
+
+                    for (EndPortalMonitorCommand.FrameInfo frame : frames) {
+                        if (frame.squaredDistanceTo(pos) < maxSquaredDistance) {
+                            return true;
+                        }
+                    }
+                }
+            }
+        }
+
+        return false;
+    }
+
+    void clear() {
+        dimensions.clear();
+    }
+
+    private int cellCoord(int blockCoord) {
+        return Math.floorDiv(blockCoord, cellSize);
+    }
+
+    // 将三个格子坐标打包成一个long（每个坐标21位）
+    private static long cellKey(int x, int y, int z) {
+        return ((long) x & 0x1FFFFF) << 42 | ((long) y & 0x1FFFFF) << 21 | ((long) z & 0x1FFFFF);
+    }
+}
@@ -0,0 +1,98 @@
+package aysta3045.command;
+
+import it.unimi.dsi.fastutil.longs.Long2ObjectOpenHashMap;
+import it.unimi.dsi.fastutil.objects.Object2IntOpenHashMap;
+import net.minecraft.registry.RegistryKey;
+import net.minecraft.util.math.BlockPos;
+import net.minecraft.world.World;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * 末地门框架记录存储
+ * 以 维度编号 + BlockPos.asLong() 作为键，每个维度一个开放寻址的 long -> FrameInfo 映射，
+ * 扫描路径上不再生成字符串键
+ */
+class FrameStore {
+
+    // 维度 -> 紧凑的维度编号
+    private final Object2IntOpenHashMap<RegistryKey<World>> dimensionIds = new Object2IntOpenHashMap<>();
+
+    // 按维度编号存放的框架记录
+    private final List<Long2ObjectOpenHashMap<EndPortalMonitorCommand.FrameInfo>> framesByDimension = new ArrayList<>();
+
+    private int size = 0;
+
+    FrameStore() {
+        dimensionIds.defaultReturnValue(-1);
+    }
+
+    private Long2ObjectOpenHashMap<EndPortalMonitorCommand.FrameInfo> framesOf(RegistryKey<World> dimension, boolean create) {
+        int id = dimensionIds.getInt(dimension);
+        if (id < 0) {
+            if (!create) {
+                return null;
+            }
+            id = framesByDimension.size();
+            dimensionIds.put(dimension, id);
+            framesByDimension.add(new Long2ObjectOpenHashMap<>());
+        }
+        return framesByDimension.get(id);
+    }
+
+    EndPortalMonitorCommand.FrameInfo get(RegistryKey<World> dimension, BlockPos pos) {
+        Long2ObjectOpenHashMap<EndPortalMonitorCommand.FrameInfo> frames = framesOf(dimension, false);
+        return frames == null ? null : frames.get(pos.asLong());
+    }
+
+    /**
+     * 存入一条记录，返回被替换的旧记录（没有则返回null）
+     */
+    EndPortalMonitorCommand.FrameInfo put(EndPortalMonitorCommand.FrameInfo frame) {
+        EndPortalMonitorCommand.FrameInfo previous = framesOf(frame.dimension, true).put(frame.framePosition.asLong(), frame);
+        if (previous == null) {
+            size++;
+        }
+        return previous;
+    }
+
+    boolean remove(EndPortalMonitorCommand.FrameInfo frame) {
+        Long2ObjectOpenHashMap<EndPortalMonitorCommand.FrameInfo> frames = framesOf(frame.dimension, false);
+        if (frames != null && frames.remove(frame.framePosition.asLong(), frame)) {
+            size--;
+            return true;
+        }
+        return false;
+    }
+
+    /**
+     * 检查存储中是否仍是这一条记录（同一位置可能已被新记录替换）
+     */
+    boolean contains(EndPortalMonitorCommand.FrameInfo frame) {
+        return get(frame.dimension, frame.framePosition) == frame;
+    }
+
+    List<EndPortalMonitorCommand.FrameInfo> values() {
+        List<EndPortalMonitorCommand.FrameInfo> values = new ArrayList<>(size);
+        for (Long2ObjectOpenHashMap<EndPortalMonitorCommand.FrameInfo> frames : framesByDimension) {
+            values.addAll(frames.values());
+        }
+        return values;
+    }
+
+    int size() {
+        return size;
+    }
+
+    boolean isEmpty() {
+        return size == 0;
+    }
+
+    void clear() {
+        for (Long2ObjectOpenHashMap<EndPortalMonitorCommand.FrameInfo> frames : framesByDimension) {
+            frames.clear();
+        }
+        size = 0;
+    }
+}
@@ -31,7 +31,7 @@ public class OpenGuiCommand {
 
         // 打开 GUI
         player.openHandledScreen(new SimpleNamedScreenHandlerFactory(
-                (syncId, inventory, playerEntity) -> new CompetitionScreenHandler(syncId, inventory),
+                (syncId, inventory, playerEntity) -> new CompetitionScreenHandler(syncId, inventory, CompetitionScreenHandler.createStatusDelegate()),
                 Text.literal("比赛管理界面")
         ));
 
@@ -0,0 +1,182 @@
+package aysta3045.command;
+
+import aysta3045.Competition;
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.Unpooled;
+import net.minecraft.network.NetworkState;
+import net.minecraft.network.PacketCallbacks;
+import net.minecraft.network.RegistryByteBuf;
+import net.minecraft.network.listener.ClientPlayPacketListener;
+import net.minecraft.network.packet.BundlePacket;
+import net.minecraft.network.packet.Packet;
+import net.minecraft.network.packet.s2c.play.BundleS2CPacket;
+import net.minecraft.network.state.PlayStateFactories;
+import net.minecraft.server.MinecraftServer;
+import net.minecraft.server.network.ServerCommonNetworkHandler;
+import net.minecraft.server.network.ServerPlayerEntity;
+import net.minecraft.text.Text;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Consumer;
+
+/**
+ * 批量玩家操作
+ * 先按玩家收集要执行的操作，apply() 时按玩家逐个执行（只遍历一次）；
+ * 执行某名玩家的操作期间，发给这名玩家的数据包（切换游戏模式、传送、效果、标题、音效、粒子、聊天等）
+ * 由 ServerCommonNetworkHandlerMixin 暂存，该玩家的操作全部执行完后合并为一个 BundleS2CPacket 发送，
+ * 客户端在同一帧内处理。执行结束后在控制台输出这一阶段发送的数据包数和字节数
+ */
+public class PlayerBatch {
+
+    // 客户端一个合并数据包最多接受的数据包数量
+    private static final int MAX_BUNDLE_SIZE = 4096;
+
+    // 正在执行操作的玩家的连接和暂存的数据包（只在服务器线程访问）
+    private static ServerCommonNetworkHandler capturingHandler;
+    private static List<Packet<? super ClientPlayPacketListener>> captured;
+
+    /**
+     * 一个阶段的发送统计
+     *
+     * @param bytes 数据包编码后的大小（包含数据包id，不包含长度前缀和压缩）
+     */
+    record Stats(String phase, int playerCount, int operationCount, int packetCount, int bundleCount,
+                 long bytes, long elapsedMicros) {
+    }
+
+    private final String phase;
+
+    // 按加入顺序保存每名玩家的操作
+    private final Map<ServerPlayerEntity, List<Consumer<ServerPlayerEntity>>> operations = new LinkedHashMap<>();
+
+    private int operationCount = 0;
+
+    /**
+     * @param phase 阶段名称，用于统计输出
+     */
+    PlayerBatch(String phase) {
+        this.phase = phase;
+    }
+
+    /**
+     * 为一名玩家添加一个操作，同一名玩家的操作按添加顺序执行
+     */
+    PlayerBatch add(ServerPlayerEntity player, Consumer<ServerPlayerEntity> operation) {
+        operations.computeIfAbsent(player, k -> new ArrayList<>()).add(operation);
+        operationCount++;
+        return this;
+    }
+
+    /**
+     * 执行所有操作并发送合并后的数据包（只能在服务器线程调用）
+     */
+    Stats apply(MinecraftServer server) {
+        long startTime = System.nanoTime();
+
+        NetworkState<ClientPlayPacketListener> state =
+                PlayStateFactories.S2C.bind(RegistryByteBuf.makeFactory(server.getRegistryManager()));
+        ByteBuf buffer = Unpooled.buffer();
+
+        int packetCount = 0;
+        int bundleCount = 0;
+        long bytes = 0;
+
+        try {
+            for (Map.Entry<ServerPlayerEntity, List<Consumer<ServerPlayerEntity>>> entry : operations.entrySet()) {
+                ServerPlayerEntity player = entry.getKey();
+
+                // 执行期间下线的玩家
+                if (player.isDisconnected()) {
+                    continue;
+                }
+
+                List<Packet<? super ClientPlayPacketListener>> packets = new ArrayList<>();
+                capturingHandler = player.networkHandler;
+                captured = packets;
+                try {
+                    for (Consumer<ServerPlayerEntity> operation : entry.getValue()) {
+                        operation.accept(player);
+                    }
+                } catch (RuntimeException e) {
+                    // 一名玩家的操作失败不影响其他玩家
+                    Competition.LOGGER.error("[比赛系统] {}: 执行 {} 的操作失败",
+                            phase, player.getName().getString(), e);
+                } finally {
+                    capturingHandler = null;
+                    captured = null;
+
+                    // 出错前已经暂存的数据包也要发送，否则客户端和服务器状态不一致
+                    for (Packet<? super ClientPlayPacketListener> packet : packets) {
+                        bytes += measure(state, buffer, packet);
+                    }
+                    packetCount += packets.size();
+                    bundleCount += send(player, packets);
+                }
+            }
+        } finally {
+            buffer.release();
+        }
+
+        Stats stats = new Stats(phase, operations.size(), operationCount, packetCount, bundleCount, bytes,
+                (System.nanoTime() - startTime) / 1000);
+        operations.clear();
+        operationCount = 0;
+
+        server.sendMessage(Text.literal(String.format(
+                "[比赛系统] %s: %d 名玩家, %d 个操作, %d 个数据包（合并为 %d 个）, %d 字节, 耗时 %.2fms",
+                stats.phase(), stats.playerCount(), stats.operationCount(), stats.packetCount(),
+                stats.bundleCount(), stats.bytes(), stats.elapsedMicros() / 1000.0)));
+        return stats;
+    }
+
+    /**
+     * 发送一名玩家暂存的数据包，超过客户端上限时分成多个合并数据包
+     *
+     * @return 发送的合并数据包数量
+     */
+    private static int send(ServerPlayerEntity player, List<Packet<? super ClientPlayPacketListener>> packets) {
+        int bundleCount = 0;
+        for (int start = 0; start < packets.size(); start += MAX_BUNDLE_SIZE) {
+            List<Packet<? super ClientPlayPacketListener>> part =
+                    packets.subList(start, Math.min(start + MAX_BUNDLE_SIZE, packets.size()));
+            if (part.size() == 1) {
+                player.networkHandler.sendPacket(part.get(0));
+            } else {
+                player.networkHandler.sendPacket(new BundleS2CPacket(new ArrayList<>(part)));
+                bundleCount++;
+            }
+        }
+        return bundleCount;
+    }
+
+    /**
+     * 由 ServerCommonNetworkHandlerMixin 调用：正在批量执行这名玩家的操作时暂存数据包
+     *
+     * @return 数据包已暂存，不需要立即发送
+     */
+    @SuppressWarnings("unchecked")
+    public static boolean capture(ServerCommonNetworkHandler handler, Packet<?> packet, PacketCallbacks callbacks) {
+        // 带回调的数据包需要单独发送才能得到发送结果，合并数据包不能嵌套
+        if (handler != capturingHandler || callbacks != null || packet instanceof BundlePacket<?>) {
+            return false;
+        }
+
+        captured.add((Packet<? super ClientPlayPacketListener>) packet);
+        return true;
+    }
+
+    // 数据包编码后的大小，无法编码时不计入
+    private static int measure(NetworkState<ClientPlayPacketListener> state, ByteBuf buffer,
+                               Packet<? super ClientPlayPacketListener> packet) {
+        buffer.clear();
+        try {
+            state.codec().encode(buffer, packet);
+            return buffer.readableBytes();
+        } catch (RuntimeException e) {
+            return 0;
+        }
+    }
+}
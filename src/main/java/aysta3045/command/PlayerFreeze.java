@@ -0,0 +1,169 @@
+package aysta3045.command;
+
+import aysta3045.Competition;
+import net.fabricmc.fabric.api.entity.event.v1.ServerLivingEntityEvents;
+import net.fabricmc.fabric.api.networking.v1.PayloadTypeRegistry;
+import net.fabricmc.fabric.api.networking.v1.ServerPlayConnectionEvents;
+import net.fabricmc.fabric.api.networking.v1.ServerPlayNetworking;
+import net.minecraft.entity.effect.StatusEffectInstance;
+import net.minecraft.entity.effect.StatusEffects;
+import net.minecraft.nbt.NbtCompound;
+import net.minecraft.nbt.NbtElement;
+import net.minecraft.nbt.NbtHelper;
+import net.minecraft.nbt.NbtList;
+import net.minecraft.network.RegistryByteBuf;
+import net.minecraft.network.codec.PacketCodec;
+import net.minecraft.network.codec.PacketCodecs;
+import net.minecraft.network.packet.CustomPayload;
+import net.minecraft.registry.tag.DamageTypeTags;
+import net.minecraft.server.MinecraftServer;
+import net.minecraft.server.network.ServerPlayerEntity;
+import net.minecraft.util.Identifier;
+import net.minecraft.util.math.Vec3d;
+
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * 准备阶段的玩家冻结
+ * 被冻结的玩家的移动、方块/实体/物品交互由 ServerPlayNetworkHandlerMixin 在服务器端拦截，
+ * 不受伤害，不受重力影响（悬空时不会一直下落再被拉回）；
+ * 安装了本模组的客户端收到一个冻结数据包后全屏黑屏，未安装的客户端退回使用一个失明效果。
+ * 每名玩家只需要一两个数据包，也不需要服务器每tick处理多个状态效果
+ */
+public final class PlayerFreeze {
+
+    /**
+     * 通知客户端进入或解除冻结（黑屏）
+     */
+    public record FrozenPayload(boolean frozen) implements CustomPayload {
+        public static final CustomPayload.Id<FrozenPayload> ID =
+                new CustomPayload.Id<>(Identifier.of(Competition.MOD_ID, "frozen"));
+        public static final PacketCodec<RegistryByteBuf, FrozenPayload> CODEC =
+                PacketCodec.tuple(PacketCodecs.BOOL, FrozenPayload::frozen, FrozenPayload::new);
+
+        @Override
+        public Id<? extends CustomPayload> getId() {
+            return ID;
+        }
+    }
+
+    // 被冻结的玩家及其冻结位置（数据包处理可能在网络线程读取）
+    private static final Map<UUID, Vec3d> frozenPlayers = new ConcurrentHashMap<>();
+
+    private PlayerFreeze() {
+    }
+
+    public static void initialize() {
+        PayloadTypeRegistry.playS2C().register(FrozenPayload.ID, FrozenPayload.CODEC);
+
+        // 不受伤害（/kill 和虚空等无视无敌的伤害除外）
+        ServerLivingEntityEvents.ALLOW_DAMAGE.register((entity, source, amount) ->
+                !(entity instanceof ServerPlayerEntity player && isFrozen(player))
+                        || source.isIn(DamageTypeTags.BYPASSES_INVULNERABILITY));
+
+        // 无重力和失明效果会随玩家数据保存，下线时先撤销，重新进入时再应用
+        ServerPlayConnectionEvents.DISCONNECT.register((handler, server) -> {
+            if (isFrozen(handler.getPlayer())) {
+                release(handler.getPlayer());
+            }
+        });
+        ServerPlayConnectionEvents.JOIN.register((handler, sender, server) -> {
+            if (isFrozen(handler.getPlayer())) {
+                apply(handler.getPlayer());
+            }
+        });
+
+        // 离开准备阶段（开始比赛或 cancelstart 取消）时解除所有冻结
+        CompetitionLifecycle.PHASE_CHANGED.register((server, previous, next) -> {
+            if (previous == CompetitionPhase.PREPARATION) {
+                unfreezeAll(server);
+            }
+        });
+    }
+
+    /**
+     * 在玩家当前位置冻结
+     */
+    static void freeze(ServerPlayerEntity player) {
+        frozenPlayers.put(player.getUuid(), player.getPos());
+        apply(player);
+        CompetitionState.markChanged();
+    }
+
+    /**
+     * 解除所有冻结，不在线的玩家只移除记录（下线时已经撤销）
+     */
+    static void unfreezeAll(MinecraftServer server) {
+        for (UUID playerId : frozenPlayers.keySet()) {
+            ServerPlayerEntity player = server.getPlayerManager().getPlayer(playerId);
+            if (player != null) {
+                release(player);
+            }
+        }
+        frozenPlayers.clear();
+        CompetitionState.markChanged();
+    }
+
+    public static boolean isFrozen(ServerPlayerEntity player) {
+        return frozenPlayers.containsKey(player.getUuid());
+    }
+
+    /**
+     * 冻结位置，没有被冻结时返回null
+     */
+    public static Vec3d getFrozenPosition(ServerPlayerEntity player) {
+        return frozenPlayers.get(player.getUuid());
+    }
+
+    static NbtCompound writeState() {
+        NbtList players = new NbtList();
+        for (Map.Entry<UUID, Vec3d> entry : frozenPlayers.entrySet()) {
+            NbtCompound player = new NbtCompound();
+            player.put("uuid", NbtHelper.fromUuid(entry.getKey()));
+            player.putDouble("x", entry.getValue().x);
+            player.putDouble("y", entry.getValue().y);
+            player.putDouble("z", entry.getValue().z);
+            players.add(player);
+        }
+
+        NbtCompound nbt = new NbtCompound();
+        nbt.put("players", players);
+        return nbt;
+    }
+
+    // 服务器启动时恢复，玩家进入服务器时重新应用冻结
+    static void readState(NbtCompound nbt) {
+        frozenPlayers.clear();
+
+        NbtList players = nbt.getList("players", NbtElement.COMPOUND_TYPE);
+        for (int i = 0; i < players.size(); i++) {
+            NbtCompound player = players.getCompound(i);
+            frozenPlayers.put(NbtHelper.toUuid(player.get("uuid")),
+                    new Vec3d(player.getDouble("x"), player.getDouble("y"), player.getDouble("z")));
+        }
+    }
+
+    private static void apply(ServerPlayerEntity player) {
+        player.setNoGravity(true);
+        player.setVelocity(Vec3d.ZERO);
+
+        if (ServerPlayNetworking.canSend(player, FrozenPayload.ID)) {
+            ServerPlayNetworking.send(player, new FrozenPayload(true));
+        } else {
+            player.addStatusEffect(new StatusEffectInstance(
+                    StatusEffects.BLINDNESS, StatusEffectInstance.INFINITE, 0, true, false));
+        }
+    }
+
+    private static void release(ServerPlayerEntity player) {
+        player.setNoGravity(false);
+
+        if (ServerPlayNetworking.canSend(player, FrozenPayload.ID)) {
+            ServerPlayNetworking.send(player, new FrozenPayload(false));
+        } else {
+            player.removeStatusEffect(StatusEffects.BLINDNESS);
+        }
+    }
+}
@@ -0,0 +1,362 @@
+package aysta3045.command;
+
+import aysta3045.Competition;
+import net.fabricmc.fabric.api.event.lifecycle.v1.ServerLifecycleEvents;
+import net.fabricmc.fabric.api.networking.v1.ServerPlayConnectionEvents;
+import net.minecraft.entity.effect.StatusEffectInstance;
+import net.minecraft.nbt.NbtCompound;
+import net.minecraft.nbt.NbtElement;
+import net.minecraft.nbt.NbtHelper;
+import net.minecraft.nbt.NbtIo;
+import net.minecraft.nbt.NbtList;
+import net.minecraft.nbt.NbtSizeTracker;
+import net.minecraft.registry.RegistryKey;
+import net.minecraft.registry.RegistryKeys;
+import net.minecraft.server.MinecraftServer;
+import net.minecraft.server.network.ServerPlayerEntity;
+import net.minecraft.server.world.ServerWorld;
+import net.minecraft.text.Text;
+import net.minecraft.util.Identifier;
+import net.minecraft.util.WorldSavePath;
+import net.minecraft.world.GameMode;
+
+import java.io.IOException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+/**
+ * 玩家状态快照
+ * 准备阶段和启动流程修改玩家之前，把每名玩家的位置、维度、游戏模式、状态效果和背包保存为NBT，
+ * 每名玩家一个文件（世界目录/data/competition_snapshots/阶段/UUID.dat），内存中不保留快照内容；
+ * 文件读写都在后台线程进行，服务器线程不等待磁盘；取消启动时先在后台读取全部快照，
+ * 再回到服务器线程在同一个tick内全部还原，不会出现部分玩家已还原、部分还没还原的情况。
+ * 还原时不在线的玩家的快照移到 pending 目录，下次进入服务器时还原
+ */
+public final class PlayerSnapshots {
+
+    // 准备阶段之前的状态
+    static final String PREPARATION = "prep";
+
+    // 启动流程之前的状态（没有经过准备阶段的玩家只有这一层）
+    static final String STARTING = "start";
+
+    // 还原时不在线，等待下次进入服务器
+    private static final String PENDING = "pending";
+
+    private static MinecraftServer server;
+
+    // 所有文件操作都在这一个线程上按提交顺序执行
+    private static ExecutorService ioExecutor;
+
+    private PlayerSnapshots() {
+    }
+
+    /**
+     * 一名玩家的快照
+     */
+    private record Snapshot(UUID playerId, NbtCompound data) {
+    }
+
+    /**
+     * 还原结果
+     */
+    record RestoreResult(int restored, int pending) {
+    }
+
+    public static void initialize() {
+        ServerLifecycleEvents.SERVER_STARTED.register(startedServer -> {
+            server = startedServer;
+            ioExecutor = Executors.newSingleThreadExecutor(runnable -> {
+                Thread thread = new Thread(runnable, "Competition-PlayerSnapshots");
+                thread.setDaemon(true);
+                return thread;
+            });
+        });
+
+        ServerLifecycleEvents.SERVER_STOPPING.register(stoppingServer -> {
+            if (ioExecutor != null) {
+                ioExecutor.shutdown();
+                try {
+                    ioExecutor.awaitTermination(10, TimeUnit.SECONDS);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+                ioExecutor = null;
+            }
+            server = null;
+        });
+
+        // 还原时不在线的玩家在进入服务器时还原
+        ServerPlayConnectionEvents.JOIN.register((handler, sender, joinServer) -> restorePending(handler.getPlayer()));
+
+        // 比赛正式开始后不再需要回滚
+        CompetitionLifecycle.PHASE_CHANGED.register((changedServer, previous, next) -> {
+            if (next == CompetitionPhase.RUNNING) {
+                discard(PREPARATION);
+                discard(STARTING);
+            }
+        });
+    }
+
+    /**
+     * 保存玩家当前的状态（只能在服务器线程调用），已经有这一层快照的玩家保留原来的快照
+     *
+     * @return 新保存的玩家数
+     */
+    static int capture(String layer, Collection<ServerPlayerEntity> players) {
+        if (ioExecutor == null) {
+            return 0;
+        }
+
+        // 在服务器线程生成NBT，写入文件交给后台线程
+        List<Snapshot> snapshots = new ArrayList<>(players.size());
+        for (ServerPlayerEntity player : players) {
+            snapshots.add(new Snapshot(player.getUuid(), writePlayer(player)));
+        }
+
+        Path directory = getDirectory(layer);
+        ioExecutor.execute(() -> {
+            try {
+                Files.createDirectories(directory);
+                for (Snapshot snapshot : snapshots) {
+                    Path file = directory.resolve(snapshot.playerId() + ".dat");
+                    if (Files.exists(file)) {
+                        continue;
+                    }
+                    Path tempFile = directory.resolve(snapshot.playerId() + ".dat.tmp");
+                    NbtIo.writeCompressed(snapshot.data(), tempFile);
+                    Files.move(tempFile, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+                }
+            } catch (IOException e) {
+                Competition.LOGGER.error("[比赛系统] 保存玩家快照失败", e);
+            }
+        });
+
+        return snapshots.size();
+    }
+
+    /**
+     * 删除一层快照
+     */
+    static void discard(String layer) {
+        if (ioExecutor == null) {
+            return;
+        }
+
+        Path directory = getDirectory(layer);
+        ioExecutor.execute(() -> {
+            try {
+                deleteDirectory(directory);
+            } catch (IOException e) {
+                Competition.LOGGER.error("[比赛系统] 删除玩家快照失败", e);
+            }
+        });
+    }
+
+    /**
+     * 把所有玩家还原到最早一层快照的状态，然后删除准备阶段和启动流程的快照
+     * 读取文件在后台线程进行（排在之前提交的写入之后），全部读取成功后回到服务器线程，
+     * 把在线玩家的还原操作加入批量操作再调用 onRestored，调用者在回调中执行 batch.apply()，
+     * 所有在线玩家在同一个tick内一起还原
+     */
+    static void restoreAll(PlayerBatch batch, Consumer<RestoreResult> onRestored) {
+        if (ioExecutor == null) {
+            onRestored.accept(new RestoreResult(0, 0));
+            return;
+        }
+
+        MinecraftServer currentServer = server;
+        Path startDirectory = getDirectory(STARTING);
+        Path prepDirectory = getDirectory(PREPARATION);
+        ioExecutor.execute(() -> {
+            // 按层从早到晚读取，同一名玩家只保留最早的一层
+            Map<UUID, NbtCompound> snapshots = new LinkedHashMap<>();
+            try {
+                readLayer(prepDirectory, snapshots);
+                readLayer(startDirectory, snapshots);
+            } catch (IOException e) {
+                Competition.LOGGER.error("[比赛系统] 读取玩家快照失败，未做任何还原", e);
+                currentServer.execute(() -> onRestored.accept(new RestoreResult(0, 0)));
+                return;
+            }
+
+            // 已经全部读入内存，在后续的保存之前删除，避免删掉下一次准备阶段的快照
+            try {
+                deleteDirectory(startDirectory);
+                deleteDirectory(prepDirectory);
+            } catch (IOException e) {
+                Competition.LOGGER.error("[比赛系统] 清理玩家快照失败", e);
+            }
+
+            currentServer.execute(() -> onRestored.accept(applyAll(currentServer, batch, snapshots)));
+        });
+    }
+
+    // 在服务器线程把在线玩家的还原加入批量操作，不在线的玩家写入 pending 目录
+    private static RestoreResult applyAll(MinecraftServer currentServer, PlayerBatch batch, Map<UUID, NbtCompound> snapshots) {
+        List<Snapshot> pending = new ArrayList<>();
+        int restored = 0;
+        for (Map.Entry<UUID, NbtCompound> entry : snapshots.entrySet()) {
+            ServerPlayerEntity player = currentServer.getPlayerManager().getPlayer(entry.getKey());
+            if (player == null) {
+                pending.add(new Snapshot(entry.getKey(), entry.getValue()));
+                continue;
+            }
+
+            NbtCompound data = entry.getValue();
+            batch.add(player, target -> applyPlayer(target, data));
+            restored++;
+        }
+
+        writePending(pending);
+        return new RestoreResult(restored, pending.size());
+    }
+
+    private static void writePending(List<Snapshot> pending) {
+        if (pending.isEmpty() || ioExecutor == null) {
+            return;
+        }
+
+        Path pendingDirectory = getDirectory(PENDING);
+        ioExecutor.execute(() -> {
+            try {
+                Files.createDirectories(pendingDirectory);
+                for (Snapshot snapshot : pending) {
+                    NbtIo.writeCompressed(snapshot.data(), pendingDirectory.resolve(snapshot.playerId() + ".dat"));
+                }
+            } catch (IOException e) {
+                Competition.LOGGER.error("[比赛系统] 保存待恢复的玩家快照失败", e);
+            }
+        });
+    }
+
+    // 在后台线程读取并删除文件，回到服务器线程后还原
+    private static void restorePending(ServerPlayerEntity player) {
+        if (ioExecutor == null) {
+            return;
+        }
+
+        MinecraftServer currentServer = server;
+        UUID playerId = player.getUuid();
+        Path file = getDirectory(PENDING).resolve(playerId + ".dat");
+        ioExecutor.execute(() -> {
+            if (!Files.exists(file)) {
+                return;
+            }
+
+            NbtCompound data;
+            try {
+                data = NbtIo.readCompressed(file, NbtSizeTracker.ofUnlimitedBytes());
+                Files.delete(file);
+            } catch (IOException e) {
+                Competition.LOGGER.error("[比赛系统] 读取待恢复的玩家快照失败: " + playerId, e);
+                return;
+            }
+
+            currentServer.execute(() -> {
+                // 读取期间又下线了，放回 pending 等下次进入
+                ServerPlayerEntity target = currentServer.getPlayerManager().getPlayer(playerId);
+                if (target == null) {
+                    writePending(List.of(new Snapshot(playerId, data)));
+                    return;
+                }
+
+                applyPlayer(target, data);
+                target.sendMessage(Text.literal("§e准备阶段或比赛启动流程已被取消，你的状态已恢复"));
+                currentServer.sendMessage(Text.literal("[比赛系统] 已恢复 " + target.getName().getString() + " 的玩家快照"));
+            });
+        });
+    }
+
+    private static NbtCompound writePlayer(ServerPlayerEntity player) {
+        NbtCompound nbt = new NbtCompound();
+        nbt.put("uuid", NbtHelper.fromUuid(player.getUuid()));
+        nbt.putString("dimension", player.getServerWorld().getRegistryKey().getValue().toString());
+        nbt.putDouble("x", player.getX());
+        nbt.putDouble("y", player.getY());
+        nbt.putDouble("z", player.getZ());
+        nbt.putFloat("yaw", player.getYaw());
+        nbt.putFloat("pitch", player.getPitch());
+        nbt.putInt("gameMode", player.interactionManager.getGameMode().getId());
+
+        NbtList effects = new NbtList();
+        for (StatusEffectInstance effect : player.getStatusEffects()) {
+            effects.add(effect.writeNbt());
+        }
+        nbt.put("effects", effects);
+
+        nbt.put("inventory", player.getInventory().writeNbt(new NbtList()));
+        nbt.putInt("selectedSlot", player.getInventory().selectedSlot);
+        NbtHelper.putDataVersion(nbt);
+        return nbt;
+    }
+
+    private static void applyPlayer(ServerPlayerEntity player, NbtCompound nbt) {
+        // 维度不存在时（数据包被移除）回到主世界
+        ServerWorld world = server.getWorld(RegistryKey.of(RegistryKeys.WORLD, Identifier.of(nbt.getString("dimension"))));
+        if (world == null) {
+            world = server.getOverworld();
+        }
+
+        player.changeGameMode(GameMode.byId(nbt.getInt("gameMode")));
+
+        player.clearStatusEffects();
+        NbtList effects = nbt.getList("effects", NbtElement.COMPOUND_TYPE);
+        for (int i = 0; i < effects.size(); i++) {
+            StatusEffectInstance effect = StatusEffectInstance.fromNbt(effects.getCompound(i));
+            if (effect != null) {
+                player.addStatusEffect(effect);
+            }
+        }
+
+        player.getInventory().readNbt(nbt.getList("inventory", NbtElement.COMPOUND_TYPE));
+        player.getInventory().selectedSlot = nbt.getInt("selectedSlot");
+        player.getInventory().markDirty();
+
+        player.fallDistance = 0;
+        player.teleport(world, nbt.getDouble("x"), nbt.getDouble("y"), nbt.getDouble("z"),
+                nbt.getFloat("yaw"), nbt.getFloat("pitch"));
+    }
+
+    private static void readLayer(Path directory, Map<UUID, NbtCompound> snapshots) throws IOException {
+        if (!Files.isDirectory(directory)) {
+            return;
+        }
+
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(directory, "*.dat")) {
+            for (Path file : files) {
+                NbtCompound data = NbtIo.readCompressed(file, NbtSizeTracker.ofUnlimitedBytes());
+                snapshots.putIfAbsent(NbtHelper.toUuid(data.get("uuid")), data);
+            }
+        }
+    }
+
+    private static void deleteDirectory(Path directory) throws IOException {
+        if (!Files.isDirectory(directory)) {
+            return;
+        }
+
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(directory)) {
+            for (Path file : files) {
+                Files.delete(file);
+            }
+        }
+        Files.delete(directory);
+    }
+
+    private static Path getDirectory(String layer) {
+        return server.getSavePath(WorldSavePath.ROOT).resolve("data").resolve("competition_snapshots").resolve(layer);
+    }
+}
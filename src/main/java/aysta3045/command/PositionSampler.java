@@ -0,0 +1,150 @@
+package aysta3045.command;
+
+import net.minecraft.util.math.Vec3d;
+
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.UUID;
+
+/**
+ * 出生点选择期间的位置采样
+ * 每隔固定tick对每名玩家采样一次，存入每名玩家固定大小的环形缓冲区（基本类型数组）；
+ * 各组的坐标总和在采样时增量维护（写入新样本加、覆盖旧样本减），
+ * 所以截止时计算所有队伍的时间加权中心只需要 O(队伍数)
+ */
+class PositionSampler {
+
+    // 未分组玩家的组编号
+    static final int UNGROUPED = TeamIndex.NO_TEAM;
+
+    private final int capacity;
+
+    // 每名玩家的样本
+    private final Map<UUID, PlayerSamples> players = new HashMap<>();
+
+    // 按 组编号 + 1 存放（下标0为未分组），每组4个值：x总和、y总和、z总和、样本数
+    private double[] teamSums = new double[0];
+
+    // 每一轮采样的编号，本轮没有被采样的玩家（已下线）会被移除
+    private int pass = 0;
+
+    private static class PlayerSamples {
+        // 环形缓冲区，每个样本占3个位置
+        final double[] positions;
+        int head = 0;
+        int size = 0;
+        int team;
+        int lastPass;
+
+        // 当前缓冲区中所有样本的坐标总和
+        double sumX, sumY, sumZ;
+
+        PlayerSamples(int capacity, int team) {
+            this.positions = new double[capacity * 3];
+            this.team = team;
+        }
+    }
+
+    /**
+     * @param capacity 每名玩家保留的样本数，超过后覆盖最旧的样本
+     */
+    PositionSampler(int capacity) {
+        this.capacity = capacity;
+    }
+
+    void beginPass() {
+        pass++;
+    }
+
+    /**
+     * 记录一名玩家的位置
+     *
+     * @param team 玩家当前的组编号，未分组为 UNGROUPED
+     */
+    void sample(UUID playerId, int team, double x, double y, double z) {
+        PlayerSamples samples = players.get(playerId);
+        if (samples == null) {
+            samples = new PlayerSamples(capacity, team);
+            players.put(playerId, samples);
+        } else if (samples.team != team) {
+            // 采样期间换了组，已有样本整体转到新组
+            addToTeam(samples.team, -samples.sumX, -samples.sumY, -samples.sumZ, -samples.size);
+            addToTeam(team, samples.sumX, samples.sumY, samples.sumZ, samples.size);
+            samples.team = team;
+        }
+        samples.lastPass = pass;
+
+        int offset = samples.head * 3;
+        if (samples.size == capacity) {
+            // 缓冲区已满，减去被覆盖的最旧样本
+            double oldX = samples.positions[offset];
+            double oldY = samples.positions[offset + 1];
+            double oldZ = samples.positions[offset + 2];
+            samples.sumX -= oldX;
+            samples.sumY -= oldY;
+            samples.sumZ -= oldZ;
+            addToTeam(team, -oldX, -oldY, -oldZ, -1);
+        } else {
+            samples.size++;
+        }
+
+        samples.positions[offset] = x;
+        samples.positions[offset + 1] = y;
+        samples.positions[offset + 2] = z;
+        samples.head = (samples.head + 1) % capacity;
+
+        samples.sumX += x;
+        samples.sumY += y;
+        samples.sumZ += z;
+        addToTeam(team, x, y, z, 1);
+    }
+
+    /**
+     * 结束一轮采样，移除本轮没有采样到的玩家
+     */
+    void endPass() {
+        Iterator<PlayerSamples> iterator = players.values().iterator();
+        while (iterator.hasNext()) {
+            PlayerSamples samples = iterator.next();
+            if (samples.lastPass != pass) {
+                addToTeam(samples.team, -samples.sumX, -samples.sumY, -samples.sumZ, -samples.size);
+                iterator.remove();
+            }
+        }
+    }
+
+    /**
+     * 组内所有样本的平均位置（每个样本代表相同的采样间隔，即按停留时间加权），没有样本时返回null
+     */
+    Vec3d getTeamCentroid(int team) {
+        int base = (team + 1) * 4;
+        if (base + 3 >= teamSums.length || teamSums[base + 3] <= 0) {
+            return null;
+        }
+
+        double count = teamSums[base + 3];
+        return new Vec3d(teamSums[base] / count, teamSums[base + 1] / count, teamSums[base + 2] / count);
+    }
+
+    void clear() {
+        players.clear();
+        teamSums = new double[0];
+        pass = 0;
+    }
+
+    private void addToTeam(int team, double x, double y, double z, int count) {
+        int base = (team + 1) * 4;
+        if (base + 3 >= teamSums.length) {
+            // 分组定义重新加载后组数可能变多
+            double[] grown = new double[base + 4];
+            System.arraycopy(teamSums, 0, grown, 0, teamSums.length);
+            teamSums = grown;
+        }
+
+        teamSums[base] += x;
+        teamSums[base + 1] += y;
+        teamSums[base + 2] += z;
+        teamSums[base + 3] += count;
+    }
+}
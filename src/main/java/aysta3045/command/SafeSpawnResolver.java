@@ -0,0 +1,119 @@
+package aysta3045.command;
+
+import net.minecraft.fluid.FluidState;
+import net.minecraft.registry.tag.FluidTags;
+import net.minecraft.server.world.ServerWorld;
+import net.minecraft.util.math.BlockPos;
+import net.minecraft.util.math.MathHelper;
+import net.minecraft.util.math.Vec3d;
+import net.minecraft.world.Heightmap;
+import net.minecraft.world.chunk.WorldChunk;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * 出生点地表修正
+ * 队伍平均坐标可能落在半空或岩石里，这里只保留平均的X/Z，
+ * 从已加载区块的 MOTION_BLOCKING_NO_LEAVES 高度图读取地表高度；
+ * 该位置不安全时按螺旋顺序检查周围的候选位置，每个候选位置只读取高度图和地表的一个方块
+ */
+class SafeSpawnResolver {
+
+    // 相邻候选位置的间距（格）
+    private static final int CANDIDATE_STEP = 3;
+
+    // 螺旋的圈数，最远检查到 CANDIDATE_STEP * SPIRAL_RINGS 格以外
+    private static final int SPIRAL_RINGS = 4;
+
+    // 螺旋顺序的候选偏移 (dx, dz)，按到中心的距离由近到远
+    private static final int[] SPIRAL_OFFSETS = createSpiralOffsets();
+
+    // 同一个出生点只计算一次（同队玩家共用）
+    private final Map<ServerWorld, Map<Vec3d, Vec3d>> resolved = new HashMap<>();
+
+    /**
+     * 修正出生点，找不到合适的位置时（区块未加载、有顶棚的维度）返回原位置
+     */
+    Vec3d resolve(ServerWorld world, Vec3d pos) {
+        return resolved.computeIfAbsent(world, k -> new HashMap<>())
+                .computeIfAbsent(pos, k -> findSurface(world, pos));
+    }
+
+    void clear() {
+        resolved.clear();
+    }
+
+    private static Vec3d findSurface(ServerWorld world, Vec3d pos) {
+        // 下界等有顶棚的维度高度图会落在顶层基岩上，不做修正
+        if (world.getDimension().hasCeiling()) {
+            return pos;
+        }
+
+        int centerX = MathHelper.floor(pos.x);
+        int centerZ = MathHelper.floor(pos.z);
+
+        // 所有候选位置都在水面时，退而求其次使用最近的一个
+        Vec3d waterFallback = null;
+
+        for (int i = 0; i < SPIRAL_OFFSETS.length; i += 2) {
+            int x = centerX + SPIRAL_OFFSETS[i] * CANDIDATE_STEP;
+            int z = centerZ + SPIRAL_OFFSETS[i + 1] * CANDIDATE_STEP;
+
+            // 只读取已加载的区块，不触发加载
+            WorldChunk chunk = world.getChunkManager().getWorldChunk(x >> 4, z >> 4);
+            if (chunk == null) {
+                continue;
+            }
+
+            int surfaceY = chunk.sampleHeightmap(Heightmap.Type.MOTION_BLOCKING_NO_LEAVES, x & 15, z & 15);
+
+            // 空的一列（虚空）
+            if (surfaceY < world.getBottomY()) {
+                continue;
+            }
+
+            // 高度图把流体也算作地表，检查最上面这一格
+            FluidState fluid = chunk.getFluidState(new BlockPos(x, surfaceY, z));
+            Vec3d candidate = new Vec3d(x + 0.5, surfaceY + 1, z + 0.5);
+
+            if (fluid.isEmpty()) {
+                return candidate;
+            }
+            if (waterFallback == null && fluid.isIn(FluidTags.WATER)) {
+                waterFallback = candidate;
+            }
+        }
+
+        return waterFallback != null ? waterFallback : pos;
+    }
+
+    // 方形螺旋：中心，然后逐圈由内向外
+    private static int[] createSpiralOffsets() {
+        int size = 2 * SPIRAL_RINGS + 1;
+        int[] offsets = new int[size * size * 2];
+        int index = 0;
+
+        offsets[index++] = 0;
+        offsets[index++] = 0;
+
+        for (int ring = 1; ring <= SPIRAL_RINGS; ring++) {
+            // 从 (ring, -ring + 1) 开始逆时针绕一圈
+            int x = ring;
+            int z = -ring + 1;
+            int[][] directions = {{0, 1}, {-1, 0}, {0, -1}, {1, 0}};
+            int[] lengths = {2 * ring - 1, 2 * ring, 2 * ring, 2 * ring + 1};
+
+            for (int side = 0; side < 4; side++) {
+                for (int step = 0; step < lengths[side]; step++) {
+                    offsets[index++] = x;
+                    offsets[index++] = z;
+                    x += directions[side][0];
+                    z += directions[side][1];
+                }
+            }
+        }
+
+        return offsets;
+    }
+}
@@ -0,0 +1,164 @@
+package aysta3045.command;
+
+import it.unimi.dsi.fastutil.longs.LongIterator;
+import it.unimi.dsi.fastutil.longs.LongOpenHashSet;
+import net.minecraft.server.network.ServerPlayerEntity;
+import net.minecraft.server.world.ChunkTicketType;
+import net.minecraft.server.world.ServerWorld;
+import net.minecraft.util.math.BlockPos;
+import net.minecraft.util.math.ChunkPos;
+import net.minecraft.util.math.Vec3d;
+
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Consumer;
+
+/**
+ * 分批传送到出生点
+ * 出生点附近的区块先用区块票据预加载，全部加载完成（或等待超时）后再按批次在多个tick中传送，
+ * 避免所有玩家在同一个tick传送到未加载的区块造成长时间卡顿
+ */
+class SpawnTeleporter {
+
+    // 一名玩家的传送目标
+    record Target(ServerPlayerEntity player, ServerWorld world, Vec3d pos, String teamName) {
+    }
+
+    // 传送结果统计
+    record Result(int playerCount, int waveCount, int waitedTicks, boolean loadTimedOut, long worstTickNanos) {
+    }
+
+    private static final ChunkTicketType<ChunkPos> SPAWN_TICKET =
+            ChunkTicketType.create("competition_spawn", Comparator.comparingLong(ChunkPos::toLong));
+
+    // 票据半径：出生点所在区块周围这个范围内的区块会被完整加载
+    private static final int TICKET_RADIUS = 2;
+
+    // 每个tick传送的玩家数
+    private static final int WAVE_SIZE = 8;
+
+    // 等待区块加载的最长时间，超时后直接开始传送
+    private static final int MAX_WAIT_TICKS = CompetitionScheduler.TICKS_PER_SECOND * 10;
+
+    // 已添加票据的区块（按世界）
+    private final Map<ServerWorld, LongOpenHashSet> ticketChunks = new HashMap<>();
+
+    // 还没有加载完成的出生点区块（出生点所在区块及相邻的8个区块）
+    private final Map<ServerWorld, LongOpenHashSet> pendingChunks = new HashMap<>();
+
+    private CompetitionScheduler.Task task;
+
+    /**
+     * 为一个出生点添加区块票据，同一个区块只添加一次（可以在确定最终出生点之前多次调用）
+     */
+    void preload(ServerWorld world, Vec3d pos) {
+        ChunkPos chunkPos = new ChunkPos(BlockPos.ofFloored(pos));
+        if (!ticketChunks.computeIfAbsent(world, k -> new LongOpenHashSet()).add(chunkPos.toLong())) {
+            return;
+        }
+
+        world.getChunkManager().addTicket(SPAWN_TICKET, chunkPos, TICKET_RADIUS, chunkPos);
+
+        LongOpenHashSet pending = pendingChunks.computeIfAbsent(world, k -> new LongOpenHashSet());
+        for (int dx = -1; dx <= 1; dx++) {
+            for (int dz = -1; dz <= 1; dz++) {
+                pending.add(ChunkPos.toLong(chunkPos.x + dx, chunkPos.z + dz));
+            }
+        }
+    }
+
+    /**
+     * 等待区块加载完成后分批传送，全部完成后回调（回调时票据已释放）
+     */
+    void begin(List<Target> targets, Consumer<Target> teleport, Consumer<Result> onFinished) {
+        // 保留选择出生点期间已经添加的票据
+        CompetitionScheduler.cancel(task);
+
+        for (Target target : targets) {
+            preload(target.world(), target.pos());
+        }
+
+        task = CompetitionScheduler.scheduleRepeating("spawn-teleport", 1, 1, new Runnable() {
+            private int waitedTicks = 0;
+            private boolean waiting = true;
+            private boolean loadTimedOut = false;
+            private int nextIndex = 0;
+            private int waveCount = 0;
+            private long worstTickNanos = 0;
+
+            @Override
+            public void run() {
+                if (waiting) {
+                    boolean preloaded = isPreloaded();
+                    if (!preloaded && waitedTicks < MAX_WAIT_TICKS) {
+                        waitedTicks++;
+                        return;
+                    }
+                    waiting = false;
+                    loadTimedOut = !preloaded;
+                }
+
+                // 上一个tick执行了一批传送，记录它的耗时
+                if (waveCount > 0) {
+                    worstTickNanos = Math.max(worstTickNanos, CompetitionScheduler.getLastTickNanos());
+                }
+
+                if (nextIndex >= targets.size()) {
+                    Result result = new Result(targets.size(), waveCount, waitedTicks, loadTimedOut, worstTickNanos);
+                    cancel();
+                    onFinished.accept(result);
+                    return;
+                }
+
+                int end = Math.min(nextIndex + WAVE_SIZE, targets.size());
+                for (int i = nextIndex; i < end; i++) {
+                    teleport.accept(targets.get(i));
+                }
+                nextIndex = end;
+                waveCount++;
+            }
+        });
+    }
+
+    // 检查还没加载完成的区块，已加载的从集合中移除
+    private boolean isPreloaded() {
+        boolean loaded = true;
+
+        for (Map.Entry<ServerWorld, LongOpenHashSet> entry : pendingChunks.entrySet()) {
+            ServerWorld world = entry.getKey();
+            LongIterator iterator = entry.getValue().iterator();
+            while (iterator.hasNext()) {
+                long chunkPos = iterator.nextLong();
+                if (world.getChunkManager().getWorldChunk(ChunkPos.getPackedX(chunkPos), ChunkPos.getPackedZ(chunkPos)) != null) {
+                    iterator.remove();
+                } else {
+                    loaded = false;
+                }
+            }
+        }
+
+        return loaded;
+    }
+
+    /**
+     * 停止传送并释放所有区块票据
+     */
+    void cancel() {
+        CompetitionScheduler.cancel(task);
+        task = null;
+
+        for (Map.Entry<ServerWorld, LongOpenHashSet> entry : ticketChunks.entrySet()) {
+            ServerWorld world = entry.getKey();
+            LongIterator iterator = entry.getValue().iterator();
+            while (iterator.hasNext()) {
+                ChunkPos chunkPos = new ChunkPos(iterator.nextLong());
+                world.getChunkManager().removeTicket(SPAWN_TICKET, chunkPos, TICKET_RADIUS, chunkPos);
+            }
+        }
+
+        ticketChunks.clear();
+        pendingChunks.clear();
+    }
+}
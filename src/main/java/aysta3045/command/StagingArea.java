@@ -0,0 +1,354 @@
+package aysta3045.command;
+
+import aysta3045.Competition;
+import com.google.gson.Gson;
+import com.google.gson.GsonBuilder;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParser;
+import net.fabricmc.fabric.api.event.lifecycle.v1.ServerLifecycleEvents;
+import net.fabricmc.loader.api.FabricLoader;
+import net.minecraft.block.Block;
+import net.minecraft.block.BlockState;
+import net.minecraft.block.Blocks;
+import net.minecraft.registry.Registries;
+import net.minecraft.registry.RegistryKey;
+import net.minecraft.registry.RegistryKeys;
+import net.minecraft.server.MinecraftServer;
+import net.minecraft.server.world.ChunkTicketType;
+import net.minecraft.server.world.ServerWorld;
+import net.minecraft.text.Text;
+import net.minecraft.util.Identifier;
+import net.minecraft.util.InvalidIdentifierException;
+import net.minecraft.util.math.BlockPos;
+import net.minecraft.util.math.ChunkPos;
+import net.minecraft.util.math.Vec3d;
+import net.minecraft.world.World;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * 准备区域
+ * 准备阶段和出生点选择期间所有玩家集中到这里，位置从 config/competition/staging.json 读取；
+ * 进入准备阶段（或直接开始启动流程）时用区块票据固定这片区块，直到启动流程结束；
+ * 区块在后台生成或读盘，玩家等区块加载完成后才传送过来（见 whenReady），服务器线程不会等待区块。
+ * 可选在集合点下方生成一个平台，释放区块时移除
+ */
+public final class StagingArea {
+
+    private static final Path CONFIG_FILE = FabricLoader.getInstance().getConfigDir()
+            .resolve(Competition.MOD_ID).resolve("staging.json");
+
+    private static final Gson GSON = new GsonBuilder().setPrettyPrinting().disableHtmlEscaping().create();
+
+    private static final ChunkTicketType<ChunkPos> STAGING_TICKET =
+            ChunkTicketType.create("competition_staging", Comparator.comparingLong(ChunkPos::toLong));
+
+    // 检查区块是否加载完成以便生成平台的间隔
+    private static final int PLATFORM_CHECK_INTERVAL = CompetitionScheduler.TICKS_PER_SECOND;
+
+    // 等待集合点区块加载的最长时间，超时后直接执行（传送时同步加载区块）
+    private static final int READY_TIMEOUT_TICKS = 30 * CompetitionScheduler.TICKS_PER_SECOND;
+
+    /**
+     * 准备区域配置
+     *
+     * @param chunkRadius    固定的区块半径（以集合点所在区块为中心）
+     * @param platformRadius 平台半径（格），0表示不生成平台
+     */
+    record Config(Identifier dimension, BlockPos center, int chunkRadius, int platformRadius, Identifier platformBlock) {
+    }
+
+    private static final Config DEFAULT_CONFIG = new Config(
+            World.OVERWORLD.getValue(), new BlockPos(0, 300, 0), 2, 3, Identifier.ofVanilla("barrier"));
+
+    private static volatile Config config = DEFAULT_CONFIG;
+
+    // 当前添加了票据的世界和区块（没有固定时为null）
+    private static ServerWorld pinnedWorld;
+    private static ChunkPos pinnedChunk;
+    private static int pinnedRadius;
+
+    private static CompetitionScheduler.Task platformTask;
+
+    // 等待区块加载完成后执行的操作
+    private static CompetitionScheduler.Task readyTask;
+
+    // 已生成的平台方块，释放区块时还原为空气
+    private static final List<BlockPos> platformBlocks = new ArrayList<>();
+    private static BlockState platformState;
+
+    private StagingArea() {
+    }
+
+    public static void initialize() {
+        try {
+            load();
+        } catch (Exception e) {
+            Competition.LOGGER.error("[比赛系统] 加载准备区域配置失败，使用默认位置: {}", e.getMessage());
+        }
+
+        // 比赛状态在 SERVER_STARTED 中恢复，在准备阶段或启动流程中重启时重新固定
+        ServerLifecycleEvents.SERVER_STARTED.register(server -> {
+            if (isActive(CompetitionLifecycle.getPhase())) {
+                pin(server);
+            }
+        });
+        // 世界保存之前移除平台，重新固定时再生成
+        ServerLifecycleEvents.SERVER_STOPPING.register(server -> unpin());
+
+        // 只在准备阶段和启动流程中固定，其他阶段释放
+        CompetitionLifecycle.PHASE_CHANGED.register((server, previous, next) -> {
+            if (!isActive(next)) {
+                unpin();
+            } else if (pinnedWorld == null) {
+                pin(server);
+            }
+        });
+    }
+
+    /**
+     * 读取配置文件，失败时保留当前配置并抛出异常
+     */
+    static void load() throws IOException {
+        if (!Files.exists(CONFIG_FILE)) {
+            writeDefaults();
+        }
+
+        JsonObject root;
+        try (Reader reader = Files.newBufferedReader(CONFIG_FILE, StandardCharsets.UTF_8)) {
+            root = JsonParser.parseReader(reader).getAsJsonObject();
+        } catch (Exception e) {
+            throw new IOException("无法解析 " + CONFIG_FILE.getFileName() + ": " + e.getMessage(), e);
+        }
+
+        Identifier dimension = parseIdentifier(root, "dimension", DEFAULT_CONFIG.dimension());
+        BlockPos center = new BlockPos(
+                getInt(root, "x", DEFAULT_CONFIG.center().getX()),
+                getInt(root, "y", DEFAULT_CONFIG.center().getY()),
+                getInt(root, "z", DEFAULT_CONFIG.center().getZ()));
+
+        int chunkRadius = getInt(root, "chunkRadius", DEFAULT_CONFIG.chunkRadius());
+        if (chunkRadius < 0 || chunkRadius > 8) {
+            throw new IOException("区块半径必须在0到8之间: " + chunkRadius);
+        }
+
+        // 平台必须在固定的区块内
+        int platformRadius = getInt(root, "platformRadius", DEFAULT_CONFIG.platformRadius());
+        if (platformRadius < 0 || platformRadius > chunkRadius * 16) {
+            throw new IOException("平台半径必须在0到" + chunkRadius * 16 + "之间: " + platformRadius);
+        }
+
+        Identifier platformBlock = parseIdentifier(root, "platformBlock", DEFAULT_CONFIG.platformBlock());
+        if (!Registries.BLOCK.containsId(platformBlock)) {
+            throw new IOException("平台方块不存在: " + platformBlock);
+        }
+
+        config = new Config(dimension, center, chunkRadius, platformRadius, platformBlock);
+    }
+
+    /**
+     * 重新读取配置并按新的位置重新固定区块
+     */
+    static void reload(MinecraftServer server) throws IOException {
+        load();
+        if (pinnedWorld != null) {
+            unpin();
+            pin(server);
+        }
+    }
+
+    // 玩家集中在准备区域的阶段
+    private static boolean isActive(CompetitionPhase phase) {
+        return phase == CompetitionPhase.PREPARATION || phase == CompetitionPhase.STARTING;
+    }
+
+    /**
+     * 集合点所在的世界，配置的维度不存在时为主世界
+     */
+    static ServerWorld getWorld(MinecraftServer server) {
+        ServerWorld world = server.getWorld(RegistryKey.of(RegistryKeys.WORLD, config.dimension()));
+        return world != null ? world : server.getOverworld();
+    }
+
+    /**
+     * 集合点（方块中心）
+     */
+    static Vec3d getSpawnPos() {
+        return Vec3d.ofBottomCenter(config.center());
+    }
+
+    /**
+     * 集合点所在的区块是否已经加载完成
+     */
+    static boolean isReady(MinecraftServer server) {
+        ChunkPos chunkPos = new ChunkPos(config.center());
+        return getWorld(server).getChunkManager().getWorldChunk(chunkPos.x, chunkPos.z) != null;
+    }
+
+    /**
+     * 集合点区块加载完成后在服务器线程执行（已经加载完成时立即执行），用于把玩家传送到准备区域；
+     * 同一时刻只等待一个操作，释放区块（取消或结束）时还没执行的操作一并取消
+     */
+    static void whenReady(MinecraftServer server, Runnable action) {
+        CompetitionScheduler.cancel(readyTask);
+        readyTask = null;
+
+        if (isReady(server)) {
+            action.run();
+            return;
+        }
+
+        long deadline = CompetitionScheduler.getCurrentTick() + READY_TIMEOUT_TICKS;
+        readyTask = CompetitionScheduler.scheduleRepeating("staging-ready", 1, 1, () -> {
+            boolean ready = isReady(server);
+            if (!ready && CompetitionScheduler.getCurrentTick() < deadline) {
+                return;
+            }
+
+            CompetitionScheduler.cancel(readyTask);
+            readyTask = null;
+            if (!ready) {
+                Competition.LOGGER.warn("[比赛系统] 准备区域区块加载超时，直接传送玩家");
+            }
+            action.run();
+        });
+    }
+
+    private static void pin(MinecraftServer server) {
+        Config current = config;
+        pinnedWorld = getWorld(server);
+        pinnedChunk = new ChunkPos(current.center());
+        pinnedRadius = current.chunkRadius();
+        pinnedWorld.getChunkManager().addTicket(STAGING_TICKET, pinnedChunk, pinnedRadius, pinnedChunk);
+
+        server.sendMessage(Text.literal("[比赛系统] 已固定准备区域区块: "
+                + pinnedWorld.getRegistryKey().getValue() + " " + pinnedChunk + " 半径 " + pinnedRadius));
+
+        if (current.platformRadius() > 0) {
+            schedulePlatform(pinnedWorld, current);
+        }
+    }
+
+    private static void unpin() {
+        CompetitionScheduler.cancel(platformTask);
+        platformTask = null;
+        CompetitionScheduler.cancel(readyTask);
+        readyTask = null;
+
+        if (pinnedWorld != null) {
+            removePlatform(pinnedWorld);
+            pinnedWorld.getChunkManager().removeTicket(STAGING_TICKET, pinnedChunk, pinnedRadius, pinnedChunk);
+            pinnedWorld = null;
+            pinnedChunk = null;
+        }
+    }
+
+    // 等平台覆盖的区块全部加载后生成平台（只填充空气，不覆盖已有方块）
+    private static void schedulePlatform(ServerWorld world, Config current) {
+        CompetitionScheduler.cancel(platformTask);
+
+        BlockPos base = current.center().down();
+        int radius = current.platformRadius();
+        int minChunkX = (base.getX() - radius) >> 4;
+        int maxChunkX = (base.getX() + radius) >> 4;
+        int minChunkZ = (base.getZ() - radius) >> 4;
+        int maxChunkZ = (base.getZ() + radius) >> 4;
+
+        platformTask = CompetitionScheduler.scheduleRepeating("staging-platform", 1, PLATFORM_CHECK_INTERVAL, () -> {
+            for (int chunkX = minChunkX; chunkX <= maxChunkX; chunkX++) {
+                for (int chunkZ = minChunkZ; chunkZ <= maxChunkZ; chunkZ++) {
+                    if (world.getChunkManager().getWorldChunk(chunkX, chunkZ) == null) {
+                        return;
+                    }
+                }
+            }
+
+            CompetitionScheduler.cancel(platformTask);
+            platformTask = null;
+
+            if (world.isOutOfHeightLimit(base)) {
+                Competition.LOGGER.warn("[比赛系统] 准备区域平台超出世界高度范围: {}", base);
+                return;
+            }
+
+            Block block = Registries.BLOCK.get(current.platformBlock());
+            BlockState state = block.getDefaultState();
+            platformState = state;
+            int placed = 0;
+            BlockPos.Mutable pos = new BlockPos.Mutable();
+            for (int dx = -radius; dx <= radius; dx++) {
+                for (int dz = -radius; dz <= radius; dz++) {
+                    pos.set(base.getX() + dx, base.getY(), base.getZ() + dz);
+                    if (world.isAir(pos)) {
+                        world.setBlockState(pos, state);
+                        platformBlocks.add(pos.toImmutable());
+                        placed++;
+                    }
+                }
+            }
+
+            if (placed > 0) {
+                Competition.LOGGER.info("[比赛系统] 已在准备区域生成平台（{} 个方块）", placed);
+            }
+        });
+    }
+
+    // 还原生成的平台（区块仍被固定，一定已加载），已经被替换的方块保持不变
+    private static void removePlatform(ServerWorld world) {
+        int removed = 0;
+        for (BlockPos pos : platformBlocks) {
+            if (world.getBlockState(pos) == platformState) {
+                world.setBlockState(pos, Blocks.AIR.getDefaultState());
+                removed++;
+            }
+        }
+        platformBlocks.clear();
+        platformState = null;
+
+        if (removed > 0) {
+            Competition.LOGGER.info("[比赛系统] 已移除准备区域平台（{} 个方块）", removed);
+        }
+    }
+
+    private static Identifier parseIdentifier(JsonObject json, String key, Identifier fallback) throws IOException {
+        JsonElement element = json.get(key);
+        if (element == null || element.isJsonNull()) {
+            return fallback;
+        }
+        try {
+            return Identifier.of(element.getAsString());
+        } catch (InvalidIdentifierException e) {
+            throw new IOException(key + " 无效: " + element.getAsString());
+        }
+    }
+
+    private static int getInt(JsonObject json, String key, int fallback) {
+        JsonElement element = json.get(key);
+        return element != null && !element.isJsonNull() ? element.getAsInt() : fallback;
+    }
+
+    private static void writeDefaults() throws IOException {
+        JsonObject root = new JsonObject();
+        root.addProperty("dimension", DEFAULT_CONFIG.dimension().toString());
+        root.addProperty("x", DEFAULT_CONFIG.center().getX());
+        root.addProperty("y", DEFAULT_CONFIG.center().getY());
+        root.addProperty("z", DEFAULT_CONFIG.center().getZ());
+        root.addProperty("chunkRadius", DEFAULT_CONFIG.chunkRadius());
+        root.addProperty("platformRadius", DEFAULT_CONFIG.platformRadius());
+        root.addProperty("platformBlock", DEFAULT_CONFIG.platformBlock().toString());
+
+        Files.createDirectories(CONFIG_FILE.getParent());
+        try (Writer writer = Files.newBufferedWriter(CONFIG_FILE, StandardCharsets.UTF_8)) {
+            GSON.toJson(root, writer);
+        }
+    }
+}
@@ -5,6 +5,7 @@ import com.mojang.brigadier.context.CommandContext;
 import net.minecraft.server.command.CommandManager;
 import net.minecraft.server.command.ServerCommandSource;
 import net.minecraft.server.network.ServerPlayerEntity;
+import net.minecraft.server.world.ServerWorld;
 import net.minecraft.text.Text;
 import net.minecraft.util.math.Vec3d;
 import net.minecraft.world.GameMode;
@@ -14,18 +15,38 @@ import net.minecraft.network.packet.s2c.play.TitleS2CPacket;
 import net.minecraft.sound.SoundEvents;
 import net.minecraft.particle.ParticleTypes;
 
-import java.util.*;
-import java.util.concurrent.*;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.atomic.AtomicInteger;
 
 public class StartCompetitionCommand {
 
-    private static ScheduledExecutorService scheduler;
-    private static boolean isRecordingPositions = false;
+    // 出生点选择时间（秒）
+    private static final int START_WINDOW_SECONDS = 60;
+
+    // 位置采样间隔（tick）
+    private static final int SAMPLE_INTERVAL_TICKS = 10;
+
+    private static CompetitionScheduler.Task startTask;
+    private static CompetitionScheduler.Task sampleTask;
     private static Map<UUID, Vec3d> playerPositions = new ConcurrentHashMap<>();
     private static Map<String, List<ServerPlayerEntity>> teamPlayers = new HashMap<>();
     private static Map<String, Vec3d> teamAveragePositions = new HashMap<>();
 
+    // 出生点区块预加载和分批传送
+    private static final SpawnTeleporter spawnTeleporter = new SpawnTeleporter();
+
+    // 把平均坐标修正到地表
+    private static final SafeSpawnResolver safeSpawnResolver = new SafeSpawnResolver();
+
+    // 出生点选择期间持续采样玩家位置，按停留时间计算队伍中心
+    private static final PositionSampler positionSampler =
+            new PositionSampler(START_WINDOW_SECONDS * CompetitionScheduler.TICKS_PER_SECOND / SAMPLE_INTERVAL_TICKS);
+
     public static void register(CommandDispatcher<ServerCommandSource> dispatcher) {
         dispatcher.register(CommandManager.literal("competition")
                 .then(CommandManager.literal("start")
@@ -48,95 +69,157 @@ public class StartCompetitionCommand {
             return 0;
         }
 
-        if (isRecordingPositions) {
+        // 启动流程进行中对应 STARTING 阶段，同一时刻只有一个转换能成功
+        CompetitionPhase phase = CompetitionLifecycle.getPhase();
+        if (phase == CompetitionPhase.STARTING) {
             source.sendError(Text.literal("§c比赛启动流程已经在进行中！"));
             return 0;
         }
 
-        // 初始化调度器
-        if (scheduler == null || scheduler.isShutdown()) {
-            scheduler = Executors.newScheduledThreadPool(1);
+        if (!phase.canTransitionTo(CompetitionPhase.STARTING)
+                || !CompetitionLifecycle.transition(source.getServer(), phase, CompetitionPhase.STARTING)) {
+            source.sendError(Text.literal("§c当前阶段（" + phase.getDisplayName() + "）不能启动比赛！"));
+            return 0;
         }
 
-        isRecordingPositions = true;
         playerPositions.clear();
         teamPlayers.clear();
         teamAveragePositions.clear();
 
-        // 步骤1: 清除所有玩家（除了执行者）身上的所有效果
+        // 修改玩家之前保存快照，取消启动时还原；没有经过准备阶段时丢弃以前残留的准备阶段快照
+        if (phase != CompetitionPhase.PREPARATION) {
+            PlayerSnapshots.discard(PlayerSnapshots.PREPARATION);
+        }
+        PlayerSnapshots.discard(PlayerSnapshots.STARTING);
+        List<ServerPlayerEntity> targets = new ArrayList<>(source.getServer().getPlayerManager().getPlayerList());
+        targets.remove(sender);
+        PlayerSnapshots.capture(PlayerSnapshots.STARTING, targets);
+
+        ServerWorld stagingWorld = StagingArea.getWorld(source.getServer());
+        Vec3d stagingPos = StagingArea.getSpawnPos();
+        if (!StagingArea.isReady(source.getServer())) {
+            source.sendMessage(Text.literal("§7准备区域的区块正在加载，加载完成后传送玩家"));
+        }
+
+        // 步骤1和步骤2在一次遍历中执行，发给同一名玩家的数据包合并发送
+        PlayerBatch batch = new PlayerBatch("start");
         for (ServerPlayerEntity player : source.getServer().getPlayerManager().getPlayerList()) {
+            // 步骤1: 清除所有玩家（除了执行者）身上的所有效果
             if (player != sender) {
-                // 清除所有状态效果
-                for (StatusEffectInstance effect : new ArrayList<>(player.getStatusEffects())) {
-                    player.removeStatusEffect(effect.getEffectType());
-                }
-
-                // 设置旁观者模式
-                player.changeGameMode(GameMode.SPECTATOR);
+                batch.add(player, target -> {
+                    // 清除所有状态效果
+                    for (StatusEffectInstance effect : new ArrayList<>(target.getStatusEffects())) {
+                        target.removeStatusEffect(effect.getEffectType());
+                    }
+
+                    // 设置旁观者模式
+                    target.changeGameMode(GameMode.SPECTATOR);
+
+                    // 传送到准备区域，从这里出发选择出生点
+                    target.teleport(
+                            stagingWorld,
+                            stagingPos.x, stagingPos.y, stagingPos.z,
+                            target.getYaw(), target.getPitch()
+                    );
+
+                    // 发送通知
+                    target.sendMessage(
+                            Text.literal("§c你已被设置为旁观者模式，请选定队伍出生点！")
+                    );
+
+                    // 播放音效
+                    target.playSound(SoundEvents.BLOCK_BELL_USE, 1.0f, 1.0f);
+                });
+            }
 
-                // 传送到指定位置 (0, 100, 0)
-                player.teleport(
-                        player.getServerWorld(),
-                        0, 100, 0,
-                        player.getYaw(), player.getPitch()
+            // 步骤2: 发送全局消息
+            batch.add(player, target -> {
+                target.sendMessage(
+                        Text.literal("§6=============================================")
                 );
-
-                // 发送通知
-                player.sendMessage(
-                        Text.literal("§c你已被设置为旁观者模式，请选定队伍出生点！")
+                target.sendMessage(
+                        Text.literal("§e§l比赛启动流程开始！")
+                );
+                target.sendMessage(
+                        Text.literal("§a请选定队伍出生点，一分钟后记录所有玩家位置")
+                );
+                target.sendMessage(
+                        Text.literal("§a并以队伍所有玩家坐标平均值作为起点")
+                );
+                target.sendMessage(
+                        Text.literal("§6=============================================")
                 );
 
-                // 播放音效
-                player.playSound(SoundEvents.BLOCK_BELL_USE, 1.0f, 1.0f);
-            }
+                // 发送标题
+                target.networkHandler.sendPacket(new TitleS2CPacket(
+                        Text.literal("§c§l选定出生点")
+                ));
+                target.networkHandler.sendPacket(new SubtitleS2CPacket(
+                        Text.literal("§a一分钟后记录位置")
+                ));
+
+                // 播放重要音效
+                target.playSound(SoundEvents.ENTITY_PLAYER_LEVELUP, 1.0f, 1.0f);
+            });
         }
+        // 准备区域区块加载完成后再传送玩家，并从那时开始计算选择出生点的时间
+        StagingArea.whenReady(source.getServer(), () -> {
+            batch.apply(source.getServer());
+            startSpawnSelection(source);
+        });
 
-        // 步骤2: 发送全局消息
-        for (ServerPlayerEntity player : source.getServer().getPlayerManager().getPlayerList()) {
-            player.sendMessage(
-                    Text.literal("§6=============================================")
-            );
-            player.sendMessage(
-                    Text.literal("§e§l比赛启动流程开始！")
-            );
-            player.sendMessage(
-                    Text.literal("§a请选定队伍出生点，一分钟后记录所有玩家位置")
-            );
-            player.sendMessage(
-                    Text.literal("§a并以队伍所有玩家坐标平均值作为起点")
-            );
-            player.sendMessage(
-                    Text.literal("§6=============================================")
-            );
+        // 记录到控制台
+        source.getServer().sendMessage(
+                Text.literal("[比赛系统] " + sender.getName().getString() + " 启动了比赛流程")
+        );
 
-            // 发送标题
-            player.networkHandler.sendPacket(new TitleS2CPacket(
-                    Text.literal("§c§l选定出生点")
-            ));
-            player.networkHandler.sendPacket(new SubtitleS2CPacket(
-                    Text.literal("§a一分钟后记录位置")
-            ));
+        source.sendMessage(
+                Text.literal("§a比赛启动流程已开始！60秒后将记录位置并传送。")
+        );
+        source.sendMessage(
+                Text.literal("§7使用 §c/competition cancelstart §7取消流程")
+        );
 
-            // 播放重要音效
-            player.playSound(SoundEvents.ENTITY_PLAYER_LEVELUP, 1.0f, 1.0f);
-        }
+        return 1;
+    }
+
+    // 步骤3: 启动60秒倒计时，期间定时采样玩家位置
+    private static void startSpawnSelection(ServerCommandSource source) {
+        AtomicInteger remainingSeconds = new AtomicInteger(START_WINDOW_SECONDS);
 
-        // 步骤3: 启动60秒倒计时
-        AtomicInteger remainingSeconds = new AtomicInteger(60);
+        positionSampler.clear();
+        sampleTask = CompetitionScheduler.scheduleRepeating("start-position-sample",
+                1, SAMPLE_INTERVAL_TICKS, () -> samplePositions(source));
 
-        scheduler.scheduleAtFixedRate(() -> {
+        startTask = CompetitionScheduler.scheduleRepeating("start-competition",
+                CompetitionScheduler.TICKS_PER_SECOND, CompetitionScheduler.TICKS_PER_SECOND, () -> {
             try {
                 int currentSeconds = remainingSeconds.decrementAndGet();
 
                 if (currentSeconds <= 0) {
-                    // 倒计时结束，记录位置
-                    recordAndCalculatePositions(source);
-                    teleportTeamsToAveragePositions(source);
-                    announceCompetitionStart(source);
-                    cleanup();
+                    // 倒计时结束，最后采样一次并停止采样，等待出生点区块加载后分批传送
+                    CompetitionScheduler.cancel(startTask);
+                    startTask = null;
+                    samplePositions(source);
+                    CompetitionScheduler.cancel(sampleTask);
+                    sampleTask = null;
+                    recordAndCalculatePositions(source, true);
+                    spawnTeleporter.begin(planTeleports(), StartCompetitionCommand::teleportToSpawn, result -> {
+                        reportTeleport(source, result);
+                        announceCompetitionStart(source);
+                        cleanup();
+                    });
                     return;
                 }
 
+                // 提前按当前位置预加载出生点附近的区块
+                if (currentSeconds == 20 || currentSeconds == 10) {
+                    recordAndCalculatePositions(source, false);
+                    for (SpawnTeleporter.Target target : planTeleports()) {
+                        spawnTeleporter.preload(target.world(), target.pos());
+                    }
+                }
+
                 // 特殊时间点提示
                 if (currentSeconds == 30) {
                     broadcastMessage(source, "§6[比赛系统] §a剩余时间: §e30秒");
@@ -153,25 +236,12 @@ public class StartCompetitionCommand {
                 System.err.println("比赛启动流程异常: " + e.getMessage());
                 e.printStackTrace();
                 cleanup();
+                CompetitionLifecycle.transition(source.getServer(), CompetitionPhase.STARTING, CompetitionPhase.IDLE);
             }
-        }, 1, 1, TimeUnit.SECONDS);
-
-        // 记录到控制台
-        source.getServer().sendMessage(
-                Text.literal("[比赛系统] " + sender.getName().getString() + " 启动了比赛流程")
-        );
-
-        source.sendMessage(
-                Text.literal("§a比赛启动流程已开始！60秒后将记录位置并传送。")
-        );
-        source.sendMessage(
-                Text.literal("§7使用 §c/competition cancelstart §7取消流程")
-        );
-
-        return 1;
+        });
     }
 
-    private static void recordAndCalculatePositions(ServerCommandSource source) {
+    private static void recordAndCalculatePositions(ServerCommandSource source, boolean log) {
         // 记录所有玩家的位置（除了执行命令的玩家）
         ServerPlayerEntity sender = source.getPlayer();
 
@@ -179,52 +249,25 @@ public class StartCompetitionCommand {
         teamPlayers.clear();
         teamAveragePositions.clear();
 
-        // 根据teamset分组信息组织玩家，并记录位置
-        for (ServerPlayerEntity player : source.getServer().getPlayerManager().getPlayerList()) {
-            if (player == sender) continue; // 跳过执行者
-
-            // 记录玩家当前位置
-            playerPositions.put(player.getUuid(), player.getPos());
-
-            // 根据队伍分组
-            String teamColor = TeamSetCommand.getPlayerTeam(player);
-            if (teamColor != null) {
-                teamPlayers.computeIfAbsent(teamColor, k -> new ArrayList<>()).add(player);
-            } else {
-                // 未分组玩家，单独处理
-                teamPlayers.computeIfAbsent("ungrouped", k -> new ArrayList<>()).add(player);
-            }
+        // 根据teamset分组索引直接取各组的在线成员，并记录位置
+        for (TeamSetCommand.TeamInfo teamInfo : TeamDefinitions.all()) {
+            groupPlayers(teamInfo.getId(), TeamSetCommand.getPlayersInTeam(source, teamInfo), sender);
         }
 
-        // 计算每个队伍的平均坐标
-        for (Map.Entry<String, List<ServerPlayerEntity>> entry : teamPlayers.entrySet()) {
-            String teamColor = entry.getKey();
-            List<ServerPlayerEntity> players = entry.getValue();
-
-            if (players.isEmpty()) continue;
+        // 未分组玩家，单独处理
+        groupPlayers("ungrouped", TeamSetCommand.getUngroupedPlayers(source), sender);
 
-            double totalX = 0;
-            double totalY = 0;
-            double totalZ = 0;
-            int count = 0;
-
-            // 只计算当前队伍玩家的坐标
-            for (ServerPlayerEntity player : players) {
-                Vec3d pos = playerPositions.get(player.getUuid());
-                if (pos != null) {
-                    totalX += pos.x;
-                    totalY += pos.y;
-                    totalZ += pos.z;
-                    count++;
-                }
-            }
+        // 队伍中心由采样时增量维护的总和直接得到
+        for (String teamColor : teamPlayers.keySet()) {
+            TeamSetCommand.TeamInfo teamInfo = TeamDefinitions.byId(teamColor);
+            int team = teamInfo != null ? teamInfo.getIndex() : PositionSampler.UNGROUPED;
 
-            if (count > 0) {
-                Vec3d averagePos = new Vec3d(totalX / count, totalY / count, totalZ / count);
+            Vec3d averagePos = positionSampler.getTeamCentroid(team);
+            if (averagePos != null) {
                 teamAveragePositions.put(teamColor, averagePos);
 
-                // 获取队伍信息
-                TeamSetCommand.TeamInfo teamInfo = TeamSetCommand.TEAM_COLORS.get(teamColor);
+                if (!log) continue;
+
                 String teamName = teamInfo != null ? teamInfo.getDisplayName() : "未分组";
 
                 // 记录到控制台
@@ -236,8 +279,39 @@ public class StartCompetitionCommand {
         }
     }
 
-    private static void teleportTeamsToAveragePositions(ServerCommandSource source) {
-        // 将所有玩家传送回生存模式并传送到平均位置
+    /**
+     * 采样一次所有参赛玩家的位置（执行者除外）
+     */
+    private static void samplePositions(ServerCommandSource source) {
+        ServerPlayerEntity sender = source.getPlayer();
+
+        positionSampler.beginPass();
+        for (ServerPlayerEntity player : source.getServer().getPlayerManager().getPlayerList()) {
+            if (player == sender) continue;
+
+            TeamSetCommand.TeamInfo teamInfo = TeamSetCommand.getPlayerTeamInfo(player);
+            int team = teamInfo != null ? teamInfo.getIndex() : PositionSampler.UNGROUPED;
+            positionSampler.sample(player.getUuid(), team, player.getX(), player.getY(), player.getZ());
+        }
+        positionSampler.endPass();
+    }
+
+    private static void groupPlayers(String teamKey, List<ServerPlayerEntity> players, ServerPlayerEntity sender) {
+        for (ServerPlayerEntity player : players) {
+            if (player == sender) continue; // 跳过执行者
+
+            // 记录玩家当前位置（单独出生的队伍使用）
+            playerPositions.put(player.getUuid(), player.getPos());
+            teamPlayers.computeIfAbsent(teamKey, k -> new ArrayList<>()).add(player);
+        }
+    }
+
+    /**
+     * 按队伍的出生点策略确定每名玩家的传送目标
+     */
+    private static List<SpawnTeleporter.Target> planTeleports() {
+        List<SpawnTeleporter.Target> targets = new ArrayList<>();
+
         for (Map.Entry<String, List<ServerPlayerEntity>> entry : teamPlayers.entrySet()) {
             String teamColor = entry.getKey();
             List<ServerPlayerEntity> players = entry.getValue();
@@ -246,42 +320,69 @@ public class StartCompetitionCommand {
             if (averagePos == null || players.isEmpty()) continue;
 
             // 获取队伍信息
-            TeamSetCommand.TeamInfo teamInfo = TeamSetCommand.TEAM_COLORS.get(teamColor);
+            TeamSetCommand.TeamInfo teamInfo = TeamDefinitions.byId(teamColor);
             String teamName = teamInfo != null ? teamInfo.getDisplayName() : "未分组";
+            boolean individualSpawn = teamInfo != null && teamInfo.getSpawnPolicy() == TeamSetCommand.SpawnPolicy.INDIVIDUAL;
 
             for (ServerPlayerEntity player : players) {
-                // 设置为生存模式
-                player.changeGameMode(GameMode.SURVIVAL);
-
-                // 传送到平均位置
-                player.teleport(
-                        player.getServerWorld(),
-                        averagePos.x, averagePos.y, averagePos.z,
-                        player.getYaw(), player.getPitch()
-                );
+                Vec3d spawnPos = individualSpawn ? playerPositions.getOrDefault(player.getUuid(), averagePos) : averagePos;
+                targets.add(new SpawnTeleporter.Target(player, player.getServerWorld(), spawnPos, teamName));
+            }
+        }
 
-                // 清除效果（再次确保）
-                for (StatusEffectInstance effect : new ArrayList<>(player.getStatusEffects())) {
-                    player.removeStatusEffect(effect.getEffectType());
-                }
+        return targets;
+    }
 
-                // 发送通知
-                player.sendMessage(
-                        Text.literal("§a你已被传送到" + teamName + "的出生点！")
-                );
+    private static void teleportToSpawn(SpawnTeleporter.Target target) {
+        ServerPlayerEntity player = target.player();
 
-                // 创建粒子效果
-                player.getServerWorld().spawnParticles(
-                        player,
-                        ParticleTypes.HAPPY_VILLAGER,
-                        true,
-                        averagePos.x, averagePos.y + 1, averagePos.z,
-                        20,
-                        0.5, 0.5, 0.5,
-                        0.1
-                );
-            }
+        // 区块已经预加载，此时可以直接读取高度图
+        Vec3d spawnPos = safeSpawnResolver.resolve(target.world(), target.pos());
+
+        // 等待期间下线的玩家跳过
+        if (player.isDisconnected()) {
+            return;
+        }
+
+        // 设置为生存模式
+        player.changeGameMode(GameMode.SURVIVAL);
+
+        // 传送到出生点
+        player.teleport(
+                target.world(),
+                spawnPos.x, spawnPos.y, spawnPos.z,
+                player.getYaw(), player.getPitch()
+        );
+
+        // 清除效果（再次确保）
+        for (StatusEffectInstance effect : new ArrayList<>(player.getStatusEffects())) {
+            player.removeStatusEffect(effect.getEffectType());
         }
+
+        // 发送通知
+        player.sendMessage(
+                Text.literal("§a你已被传送到" + target.teamName() + "的出生点！")
+        );
+
+        // 创建粒子效果
+        target.world().spawnParticles(
+                player,
+                ParticleTypes.HAPPY_VILLAGER,
+                true,
+                spawnPos.x, spawnPos.y + 1, spawnPos.z,
+                20,
+                0.5, 0.5, 0.5,
+                0.1
+        );
+    }
+
+    private static void reportTeleport(ServerCommandSource source, SpawnTeleporter.Result result) {
+        String message = String.format("传送完成: %d 名玩家，分 %d 批，等待区块加载 %d tick%s，期间最长tick耗时 %.1f ms",
+                result.playerCount(), result.waveCount(), result.waitedTicks(),
+                result.loadTimedOut() ? "（超时）" : "", result.worstTickNanos() / 1_000_000.0);
+
+        source.getServer().sendMessage(Text.literal("[比赛系统] " + message));
+        source.sendMessage(Text.literal("§7" + message));
     }
 
     private static void announceCompetitionStart(ServerCommandSource source) {
@@ -325,8 +426,8 @@ public class StartCompetitionCommand {
             );
         }
 
-        // 启动倒计时
-        source.getServer().getCommandManager().executeWithPrefix(source, "competition countdown");
+        // 进入比赛阶段（倒计时由阶段转换监听启动）
+        CompetitionLifecycle.transition(source.getServer(), CompetitionPhase.STARTING, CompetitionPhase.RUNNING);
 
         // 记录到控制台
         source.getServer().sendMessage(
@@ -343,57 +444,60 @@ public class StartCompetitionCommand {
             return 0;
         }
 
-        if (!isRecordingPositions) {
-            source.sendMessage(Text.literal("§7没有正在进行的比赛启动流程"));
+        // 准备阶段和启动流程都可以取消，离开准备阶段时 PlayerFreeze 解除所有冻结
+        CompetitionPhase phase = CompetitionLifecycle.getPhase();
+        if ((phase != CompetitionPhase.PREPARATION && phase != CompetitionPhase.STARTING)
+                || !CompetitionLifecycle.transition(source.getServer(), phase, CompetitionPhase.IDLE)) {
+            source.sendMessage(Text.literal("§7没有正在进行的准备阶段或比赛启动流程"));
             return 0;
         }
+        String cancelled = phase == CompetitionPhase.PREPARATION ? "准备阶段" : "比赛启动流程";
 
         cleanup();
 
-        // 将除自己以外的所有玩家设置为旁观者模式
-        for (ServerPlayerEntity player : source.getServer().getPlayerManager().getPlayerList()) {
-            // 跳过执行命令的玩家自己
-            if (player == sender) {
-                continue;
-            }
-
-            // 设置为旁观者模式
-            player.changeGameMode(GameMode.SPECTATOR);
-
-            // 清除效果
-            for (StatusEffectInstance effect : new ArrayList<>(player.getStatusEffects())) {
-                player.removeStatusEffect(effect.getEffectType());
+        // 还原准备阶段和启动流程之前保存的玩家状态（后台读取快照，所有在线玩家在同一个tick内完成）
+        PlayerBatch batch = new PlayerBatch("cancelstart");
+        PlayerSnapshots.restoreAll(batch, result -> {
+            for (ServerPlayerEntity player : source.getServer().getPlayerManager().getPlayerList()) {
+                if (player != sender) {
+                    batch.add(player, target -> target.sendMessage(
+                            Text.literal("§c" + cancelled + "已被管理员取消，你的状态已恢复")
+                    ));
+                }
             }
+            batch.apply(source.getServer());
 
-            // 发送通知消息
-            player.sendMessage(
-                    Text.literal("§c比赛启动流程已被管理员取消，你已被设置为旁观者模式")
+            // 给执行者发送反馈
+            source.sendMessage(
+                    Text.literal("§a已取消" + cancelled + "，已恢复 " + result.restored() + " 名玩家的状态")
             );
-        }
-
-        // 给执行者发送反馈
-        source.sendMessage(
-                Text.literal("§a已取消比赛启动流程，其他玩家已被设置为旁观者模式")
-        );
+            if (result.pending() > 0) {
+                source.sendMessage(
+                        Text.literal("§7" + result.pending() + " 名不在线的玩家将在下次进入服务器时恢复")
+                );
+            }
+        });
 
         // 记录到控制台
         source.getServer().sendMessage(
-                Text.literal("[比赛系统] " + sender.getName().getString() + " 取消了比赛启动流程")
+                Text.literal("[比赛系统] " + sender.getName().getString() + " 取消了" + cancelled)
         );
 
         return 1;
     }
 
     private static void cleanup() {
-        isRecordingPositions = false;
+        CompetitionScheduler.cancel(sampleTask);
+        sampleTask = null;
+        positionSampler.clear();
+        spawnTeleporter.cancel();
+        safeSpawnResolver.clear();
         playerPositions.clear();
         teamPlayers.clear();
         teamAveragePositions.clear();
 
-        if (scheduler != null && !scheduler.isShutdown()) {
-            scheduler.shutdownNow();
-            scheduler = null;
-        }
+        CompetitionScheduler.cancel(startTask);
+        startTask = null;
     }
 
     private static void broadcastMessage(ServerCommandSource source, String message) {
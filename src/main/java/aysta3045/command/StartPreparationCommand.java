@@ -5,10 +5,10 @@ import com.mojang.brigadier.context.CommandContext;
 import net.minecraft.server.command.CommandManager;
 import net.minecraft.server.command.ServerCommandSource;
 import net.minecraft.server.network.ServerPlayerEntity;
+import net.minecraft.server.world.ServerWorld;
 import net.minecraft.text.Text;
+import net.minecraft.util.math.Vec3d;
 import net.minecraft.world.GameMode;
-import net.minecraft.entity.effect.StatusEffectInstance;
-import net.minecraft.entity.effect.StatusEffects;
 import net.minecraft.network.packet.s2c.play.SubtitleS2CPacket;
 import net.minecraft.network.packet.s2c.play.TitleS2CPacket;
 import net.minecraft.particle.ParticleTypes;
@@ -16,7 +16,9 @@ import net.minecraft.sound.SoundEvents;
 import net.minecraft.entity.player.PlayerInventory;
 import net.minecraft.item.ItemStack;
 
+import java.util.ArrayList;
 import java.util.HashSet;
+import java.util.List;
 import java.util.Set;
 
 public class StartPreparationCommand {
@@ -26,6 +28,11 @@ public class StartPreparationCommand {
                         .requires(source -> source.hasPermissionLevel(2))
                         .executes(StartPreparationCommand::execute)
                 )
+                // 重新加载准备区域配置
+                .then(CommandManager.literal("stagingreload")
+                        .requires(source -> source.hasPermissionLevel(2))
+                        .executes(StartPreparationCommand::executeStagingReload)
+                )
         );
     }
 
@@ -40,110 +47,93 @@ public class StartPreparationCommand {
 
         Set<String> preparedPlayers = new HashSet<>();
 
-        // 启动末影龙击杀监听（如果尚未启动）
-        if (!EndCompetitionOnDragonKillCommand.isMonitoring()) {
-            source.getServer().getCommandManager().executeWithPrefix(source, "competition endondragonkill");
+        // 进入准备阶段（末影龙击杀监听和末地门框架监听由阶段转换监听启动），已在准备阶段时可以重复执行
+        CompetitionPhase phase = CompetitionLifecycle.getPhase();
+        if (phase != CompetitionPhase.PREPARATION
+                && (!phase.canTransitionTo(CompetitionPhase.PREPARATION)
+                || !CompetitionLifecycle.transition(source.getServer(), phase, CompetitionPhase.PREPARATION))) {
+            source.sendError(Text.literal("§c当前阶段（" + phase.getDisplayName() + "）不能进入准备阶段！"));
+            return 0;
         }
 
-        if (!EndPortalMonitorCommand.isMonitoring()) {
-            source.getServer().getCommandManager().executeWithPrefix(source, "competition endportalmonitor");
+        // 修改玩家之前保存快照，取消启动时还原；重新进入准备阶段时丢弃上一次的快照，
+        // 已在准备阶段时重复执行只给新加入的玩家保存（已有快照的玩家保留进入准备阶段之前的状态）
+        if (phase != CompetitionPhase.PREPARATION) {
+            PlayerSnapshots.discard(PlayerSnapshots.PREPARATION);
+            PlayerSnapshots.discard(PlayerSnapshots.STARTING);
+        }
+        List<ServerPlayerEntity> targets = new ArrayList<>(source.getServer().getPlayerManager().getPlayerList());
+        targets.remove(sender);
+        PlayerSnapshots.capture(PlayerSnapshots.PREPARATION, targets);
+
+        ServerWorld stagingWorld = StagingArea.getWorld(source.getServer());
+        Vec3d stagingPos = StagingArea.getSpawnPos();
+        if (!StagingArea.isReady(source.getServer())) {
+            source.sendMessage(Text.literal("§7准备区域的区块正在加载，加载完成后传送玩家"));
         }
 
-        // 准备阶段操作
-        for (ServerPlayerEntity target : source.getServer().getPlayerManager().getPlayerList()) {
-            if (target != sender) {
-                // 0. 清理玩家背包（不清空末影箱）
-                clearPlayerInventory(target);
-
-                // 1. 设置为冒险模式（不能破坏方块）
-                target.changeGameMode(GameMode.ADVENTURE);
-
-                // 2. 传送到指定位置
-                target.teleport(
-                        target.getServerWorld(),
-                        0, 300, 0,
-                        target.getYaw(), target.getPitch()
-                );
-
-                // 3. 给予失明效果
-                target.addStatusEffect(new StatusEffectInstance(
-                        StatusEffects.BLINDNESS,
-                        20 * 60 * 60, // 1小时
-                        0,
-                        true,
-                        true
-                ));
-
-                // 4. 给予挖掘疲劳效果（禁止挖掘）
-                target.addStatusEffect(new StatusEffectInstance(
-                        StatusEffects.MINING_FATIGUE,
-                        20 * 60 * 60, // 1小时
-                        255, // 最高等级
-                        true,
-                        true
-                ));
-
-                // 5. 给予虚弱效果（防止攻击）
-                target.addStatusEffect(new StatusEffectInstance(
-                        StatusEffects.WEAKNESS,
-                        20 * 60 * 60, // 1小时
-                        255, // 最高等级
-                        true,
-                        true
-                ));
-
-                // 6. 给予缓慢效果
-                target.addStatusEffect(new StatusEffectInstance(
-                        StatusEffects.SLOWNESS,
-                        20 * 60 * 60, // 1小时
-                        255, // 最高等级
-                        true,
-                        true
-                ));
-
-                // 7. 给予抗性提升效果（防止受到伤害）
-                target.addStatusEffect(new StatusEffectInstance(
-                        StatusEffects.RESISTANCE,
-                        20 * 60 * 60, // 1小时
-                        255, // 最高等级
-                        true,
-                        true
-                ));
-
-                // 8. 在屏幕上显示文本
-                target.networkHandler.sendPacket(new TitleS2CPacket(
-                        Text.literal("§c§l准备阶段")
-                ));
-                target.networkHandler.sendPacket(new SubtitleS2CPacket(
-                        Text.literal("§7请等待裁判")
-                ));
-
-                // 9. 播放音效
-                target.playSound(SoundEvents.BLOCK_BELL_USE, 1.0f, 1.0f);
-
-                // 10. 创建粒子效果
-                target.getServerWorld().spawnParticles(
-                        target,
-                        ParticleTypes.TOTEM_OF_UNDYING,
-                        true,
-                        target.getX(),
-                        target.getY() + 2,
-                        target.getZ(),
-                        20,
-                        0.5,
-                        0.5,
-                        0.5,
-                        0.1
-                );
-
-                preparedPlayers.add(target.getName().getString());
-
-                // 11. 记录到控制台
-                source.getServer().sendMessage(
-                        Text.literal("[比赛系统] " + target.getName().getString() + " 已进入准备阶段")
-                );
+        // 准备阶段操作：每名玩家的操作在一次遍历中执行，发给同一名玩家的数据包合并发送
+        PlayerBatch batch = new PlayerBatch("startprep");
+        Text announcement = Text.literal("§6管理员 " + sender.getName().getString() + " 启动了比赛准备阶段");
+        for (ServerPlayerEntity player : source.getServer().getPlayerManager().getPlayerList()) {
+            if (player != sender) {
+                preparedPlayers.add(player.getName().getString());
+                batch.add(player, target -> {
+                    // 0. 清理玩家背包（不清空末影箱）
+                    clearPlayerInventory(target);
+
+                    // 1. 设置为冒险模式（不能破坏方块）
+                    target.changeGameMode(GameMode.ADVENTURE);
+
+                    // 2. 传送到准备区域（区块已经加载完成）
+                    target.teleport(
+                            stagingWorld,
+                            stagingPos.x, stagingPos.y, stagingPos.z,
+                            target.getYaw(), target.getPitch()
+                    );
+
+                    // 3. 冻结在传送后的位置（禁止移动和交互、不受伤害、黑屏）
+                    PlayerFreeze.freeze(target);
+
+                    // 4. 在屏幕上显示文本
+                    target.networkHandler.sendPacket(new TitleS2CPacket(
+                            Text.literal("§c§l准备阶段")
+                    ));
+                    target.networkHandler.sendPacket(new SubtitleS2CPacket(
+                            Text.literal("§7请等待裁判")
+                    ));
+
+                    // 5. 播放音效
+                    target.playSound(SoundEvents.BLOCK_BELL_USE, 1.0f, 1.0f);
+
+                    // 6. 创建粒子效果
+                    target.getServerWorld().spawnParticles(
+                            target,
+                            ParticleTypes.TOTEM_OF_UNDYING,
+                            true,
+                            target.getX(),
+                            target.getY() + 2,
+                            target.getZ(),
+                            20,
+                            0.5,
+                            0.5,
+                            0.5,
+                            0.1
+                    );
+
+                    // 7. 记录到控制台
+                    source.getServer().sendMessage(
+                            Text.literal("[比赛系统] " + target.getName().getString() + " 已进入准备阶段")
+                    );
+                });
+            }
+
+            // 广播消息
+            if (!targets.isEmpty()) {
+                batch.add(player, target -> target.sendMessage(announcement));
             }
         }
+        StagingArea.whenReady(source.getServer(), () -> batch.apply(source.getServer()));
 
         if (!preparedPlayers.isEmpty()) {
             // 创建玩家名字列表
@@ -166,14 +156,6 @@ public class StartPreparationCommand {
                     Text.literal("§a已成功将以下玩家设为准备状态：§e" + playersList.toString())
             );
 
-            // 广播消息
-            for (ServerPlayerEntity player : source.getServer().getPlayerManager().getPlayerList()) {
-                player.sendMessage(
-                        Text.literal("§6管理员 " + sender.getName().getString() +
-                                " 启动了比赛准备阶段")
-                );
-            }
-
             return 1;
         } else {
             // 如果没有其他玩家在线
@@ -184,6 +166,23 @@ public class StartPreparationCommand {
         }
     }
 
+    private static int executeStagingReload(CommandContext<ServerCommandSource> context) {
+        ServerCommandSource source = context.getSource();
+
+        try {
+            StagingArea.reload(source.getServer());
+        } catch (Exception e) {
+            source.sendError(Text.literal("§c重新加载准备区域配置失败，继续使用原有配置: " + e.getMessage()));
+            return 0;
+        }
+
+        Vec3d pos = StagingArea.getSpawnPos();
+        source.sendMessage(Text.literal("§a已重新加载准备区域: §e"
+                + StagingArea.getWorld(source.getServer()).getRegistryKey().getValue()
+                + " (" + (int) Math.floor(pos.x) + ", " + (int) pos.y + ", " + (int) Math.floor(pos.z) + ")"));
+        return 1;
+    }
+
     /**
      * 清理玩家背包（不包括末影箱）
      */
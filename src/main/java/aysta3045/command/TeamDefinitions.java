@@ -0,0 +1,187 @@
+package aysta3045.command;
+
+import aysta3045.Competition;
+import com.google.gson.Gson;
+import com.google.gson.GsonBuilder;
+import com.google.gson.JsonArray;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParser;
+import net.fabricmc.loader.api.FabricLoader;
+import net.minecraft.util.Formatting;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 分组定义
+ * 从 config/competition/teams.json 读取，文件不存在时写入默认的7个颜色组；
+ * 每个分组按文件中的顺序分配一个紧凑的编号，热路径上直接用编号访问数组
+ */
+public class TeamDefinitions {
+
+    private static final Path CONFIG_FILE = FabricLoader.getInstance().getConfigDir()
+            .resolve(Competition.MOD_ID).resolve("teams.json");
+
+    private static final Gson GSON = new GsonBuilder().setPrettyPrinting().disableHtmlEscaping().create();
+
+    // 当前生效的定义（整体替换，不修改）
+    private static volatile Snapshot snapshot = createDefaultSnapshot();
+
+    private record Snapshot(TeamSetCommand.TeamInfo[] teams, List<TeamSetCommand.TeamInfo> teamList,
+                            Map<String, TeamSetCommand.TeamInfo> byId) {
+    }
+
+    /**
+     * 读取配置文件，失败时保留当前定义并抛出异常
+     */
+    public static void load() throws IOException {
+        if (!Files.exists(CONFIG_FILE)) {
+            writeDefaults();
+        }
+
+        JsonObject root;
+        try (Reader reader = Files.newBufferedReader(CONFIG_FILE, StandardCharsets.UTF_8)) {
+            root = JsonParser.parseReader(reader).getAsJsonObject();
+        } catch (Exception e) {
+            throw new IOException("无法解析 " + CONFIG_FILE.getFileName() + ": " + e.getMessage(), e);
+        }
+
+        JsonArray array = root.getAsJsonArray("teams");
+        if (array == null || array.isEmpty()) {
+            throw new IOException("配置文件中没有定义任何分组");
+        }
+
+        TeamSetCommand.TeamInfo[] teams = new TeamSetCommand.TeamInfo[array.size()];
+        for (int i = 0; i < array.size(); i++) {
+            teams[i] = parseTeam(i, array.get(i).getAsJsonObject());
+        }
+
+        try {
+            snapshot = createSnapshot(teams);
+        } catch (IllegalArgumentException e) {
+            throw new IOException(e.getMessage(), e);
+        }
+    }
+
+    private static TeamSetCommand.TeamInfo parseTeam(int index, JsonObject json) throws IOException {
+        String id = getString(json, "id", null);
+        if (id == null || !id.matches("[a-z0-9_]+")) {
+            throw new IOException("第 " + (index + 1) + " 个分组的id无效（只能包含小写字母、数字和下划线）: " + id);
+        }
+
+        String displayName = getString(json, "displayName", id);
+
+        Formatting color = Formatting.byName(getString(json, "color", "white"));
+        if (color == null || !color.isColor()) {
+            throw new IOException("分组 " + id + " 的颜色无效: " + getString(json, "color", null));
+        }
+
+        String prefix = getString(json, "prefix", "[" + displayName + "组] ");
+
+        int maxSize = json.has("maxSize") ? json.get("maxSize").getAsInt() : 0;
+        if (maxSize < 0) {
+            throw new IOException("分组 " + id + " 的人数上限不能为负数");
+        }
+
+        TeamSetCommand.SpawnPolicy spawnPolicy;
+        try {
+            spawnPolicy = TeamSetCommand.SpawnPolicy.valueOf(getString(json, "spawnPolicy", "average").toUpperCase());
+        } catch (IllegalArgumentException e) {
+            throw new IOException("分组 " + id + " 的出生点策略无效: " + getString(json, "spawnPolicy", null));
+        }
+
+        return new TeamSetCommand.TeamInfo(index, id, displayName, color, prefix, maxSize, spawnPolicy);
+    }
+
+    private static String getString(JsonObject json, String key, String fallback) {
+        JsonElement element = json.get(key);
+        return element != null && !element.isJsonNull() ? element.getAsString() : fallback;
+    }
+
+    private static void writeDefaults() throws IOException {
+        JsonArray array = new JsonArray();
+        for (TeamSetCommand.TeamInfo team : createDefaultSnapshot().teams()) {
+            JsonObject json = new JsonObject();
+            json.addProperty("id", team.getId());
+            json.addProperty("displayName", team.getDisplayName());
+            json.addProperty("color", team.getVanillaColor());
+            json.addProperty("prefix", team.getPrefix());
+            json.addProperty("maxSize", team.getMaxSize());
+            json.addProperty("spawnPolicy", team.getSpawnPolicy().name().toLowerCase());
+            array.add(json);
+        }
+
+        JsonObject root = new JsonObject();
+        root.add("teams", array);
+
+        Files.createDirectories(CONFIG_FILE.getParent());
+        try (Writer writer = Files.newBufferedWriter(CONFIG_FILE, StandardCharsets.UTF_8)) {
+            GSON.toJson(root, writer);
+        }
+    }
+
+    private static Snapshot createDefaultSnapshot() {
+        return createSnapshot(new TeamSetCommand.TeamInfo[]{
+                defaultTeam(0, "red", "红色", Formatting.RED),
+                defaultTeam(1, "orange", "橙色", Formatting.GOLD),
+                defaultTeam(2, "yellow", "黄色", Formatting.YELLOW),
+                defaultTeam(3, "green", "绿色", Formatting.GREEN),
+                defaultTeam(4, "cyan", "青色", Formatting.AQUA),
+                defaultTeam(5, "blue", "蓝色", Formatting.BLUE),
+                defaultTeam(6, "purple", "紫色", Formatting.LIGHT_PURPLE)
+        });
+    }
+
+    private static TeamSetCommand.TeamInfo defaultTeam(int index, String id, String displayName, Formatting color) {
+        return new TeamSetCommand.TeamInfo(index, id, displayName, color, "[" + displayName + "组] ",
+                0, TeamSetCommand.SpawnPolicy.AVERAGE);
+    }
+
+    private static Snapshot createSnapshot(TeamSetCommand.TeamInfo[] teams) {
+        Map<String, TeamSetCommand.TeamInfo> byId = new HashMap<>();
+        for (TeamSetCommand.TeamInfo team : teams) {
+            if (byId.put(team.getId(), team) != null) {
+                throw new IllegalArgumentException("分组id重复: " + team.getId());
+            }
+        }
+        return new Snapshot(teams, List.of(teams), Collections.unmodifiableMap(byId));
+    }
+
+    /**
+     * 分组数量，有效编号为 0 到 count() - 1
+     */
+    public static int count() {
+        return snapshot.teams().length;
+    }
+
+    /**
+     * 按编号获取分组，编号无效时返回null
+     */
+    public static TeamSetCommand.TeamInfo get(int index) {
+        TeamSetCommand.TeamInfo[] teams = snapshot.teams();
+        return index >= 0 && index < teams.length ? teams[index] : null;
+    }
+
+    /**
+     * 按id获取分组（用于解析命令参数），不存在时返回null
+     */
+    public static TeamSetCommand.TeamInfo byId(String id) {
+        return id != null ? snapshot.byId().get(id.toLowerCase()) : null;
+    }
+
+    /**
+     * 按编号顺序排列的所有分组（不可修改）
+     */
+    public static List<TeamSetCommand.TeamInfo> all() {
+        return snapshot.teamList();
+    }
+}
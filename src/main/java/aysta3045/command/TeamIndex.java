@@ -0,0 +1,191 @@
+package aysta3045.command;
+
+import it.unimi.dsi.fastutil.objects.Object2IntMap;
+import it.unimi.dsi.fastutil.objects.Object2IntOpenHashMap;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+import java.util.function.ObjIntConsumer;
+
+/**
+ * 玩家分组的双向索引
+ * 同时维护 UUID -> 分组编号 和 分组编号 -> 成员 两个方向，并单独记录每个组的在线成员和在线的未分组玩家，
+ * 分组变化和玩家上下线时增量更新，查询某个组只需要遍历该组成员
+ */
+class TeamIndex {
+
+    static final int NO_TEAM = -1;
+
+    private final Object2IntOpenHashMap<UUID> teamByPlayer = new Object2IntOpenHashMap<>();
+
+    // 按分组编号存放：所有已分组的玩家（包括离线玩家）和其中的在线玩家
+    private final List<Set<UUID>> membersByTeam = new ArrayList<>();
+    private final List<Set<UUID>> onlineMembersByTeam = new ArrayList<>();
+
+    private final Set<UUID> onlinePlayers = new HashSet<>();
+    private final Set<UUID> onlineUngrouped = new LinkedHashSet<>();
+
+    TeamIndex(int teamCount) {
+        teamByPlayer.defaultReturnValue(NO_TEAM);
+        resize(teamCount);
+    }
+
+    int getTeam(UUID playerId) {
+        return teamByPlayer.getInt(playerId);
+    }
+
+    /**
+     * 设置玩家分组
+     *
+     * @return 之前的分组编号，没有时返回 NO_TEAM
+     */
+    int set(UUID playerId, int team) {
+        int previous = teamByPlayer.put(playerId, team);
+        if (previous == team) {
+            return previous;
+        }
+
+        boolean online = onlinePlayers.contains(playerId);
+
+        if (previous != NO_TEAM) {
+            membersByTeam.get(previous).remove(playerId);
+            if (online) {
+                onlineMembersByTeam.get(previous).remove(playerId);
+            }
+        } else if (online) {
+            onlineUngrouped.remove(playerId);
+        }
+
+        membersByTeam.get(team).add(playerId);
+        if (online) {
+            onlineMembersByTeam.get(team).add(playerId);
+        }
+
+        return previous;
+    }
+
+    /**
+     * 移除玩家分组
+     *
+     * @return 之前的分组编号，没有时返回 NO_TEAM
+     */
+    int remove(UUID playerId) {
+        int previous = teamByPlayer.removeInt(playerId);
+        if (previous == NO_TEAM) {
+            return NO_TEAM;
+        }
+
+        membersByTeam.get(previous).remove(playerId);
+        if (onlinePlayers.contains(playerId)) {
+            onlineMembersByTeam.get(previous).remove(playerId);
+            onlineUngrouped.add(playerId);
+        }
+
+        return previous;
+    }
+
+    void clear() {
+        teamByPlayer.clear();
+        for (Set<UUID> members : membersByTeam) {
+            members.clear();
+        }
+        for (Set<UUID> members : onlineMembersByTeam) {
+            members.clear();
+        }
+        onlineUngrouped.clear();
+        onlineUngrouped.addAll(onlinePlayers);
+    }
+
+    /**
+     * 分组定义重新加载后重新编号
+     *
+     * @param oldToNew 旧编号对应的新编号，已删除的分组为 NO_TEAM，其成员变为未分组
+     */
+    void remap(int[] oldToNew, int newTeamCount) {
+        Object2IntOpenHashMap<UUID> previous = new Object2IntOpenHashMap<>(teamByPlayer);
+
+        resize(newTeamCount);
+        clear();
+
+        for (Object2IntMap.Entry<UUID> entry : previous.object2IntEntrySet()) {
+            int oldTeam = entry.getIntValue();
+            int newTeam = oldTeam < oldToNew.length ? oldToNew[oldTeam] : NO_TEAM;
+            if (newTeam != NO_TEAM) {
+                set(entry.getKey(), newTeam);
+            }
+        }
+    }
+
+    void forEachAssignment(ObjIntConsumer<UUID> action) {
+        for (Object2IntMap.Entry<UUID> entry : teamByPlayer.object2IntEntrySet()) {
+            action.accept(entry.getKey(), entry.getIntValue());
+        }
+    }
+
+    int size() {
+        return teamByPlayer.size();
+    }
+
+    void playerJoined(UUID playerId) {
+        if (!onlinePlayers.add(playerId)) {
+            return;
+        }
+
+        int team = teamByPlayer.getInt(playerId);
+        if (team != NO_TEAM) {
+            onlineMembersByTeam.get(team).add(playerId);
+        } else {
+            onlineUngrouped.add(playerId);
+        }
+    }
+
+    void playerLeft(UUID playerId) {
+        if (!onlinePlayers.remove(playerId)) {
+            return;
+        }
+
+        int team = teamByPlayer.getInt(playerId);
+        if (team != NO_TEAM) {
+            onlineMembersByTeam.get(team).remove(playerId);
+        } else {
+            onlineUngrouped.remove(playerId);
+        }
+    }
+
+    /**
+     * 组内成员总数（包括离线玩家）
+     */
+    int getMemberCount(int team) {
+        return membersByTeam.get(team).size();
+    }
+
+    /**
+     * 组内的在线成员（只读视图）
+     */
+    Set<UUID> getOnlineMembers(int team) {
+        return Collections.unmodifiableSet(onlineMembersByTeam.get(team));
+    }
+
+    /**
+     * 在线的未分组玩家（只读视图）
+     */
+    Set<UUID> getOnlineUngrouped() {
+        return Collections.unmodifiableSet(onlineUngrouped);
+    }
+
+    private void resize(int teamCount) {
+        while (membersByTeam.size() < teamCount) {
+            membersByTeam.add(new LinkedHashSet<>());
+            onlineMembersByTeam.add(new LinkedHashSet<>());
+        }
+        while (membersByTeam.size() > teamCount) {
+            membersByTeam.remove(membersByTeam.size() - 1);
+            onlineMembersByTeam.remove(onlineMembersByTeam.size() - 1);
+        }
+    }
+}
@@ -1,72 +1,151 @@
 package aysta3045.command;
 
+import aysta3045.Competition;
+import aysta3045.compat.FtbTeamsBridge;
 import com.mojang.brigadier.CommandDispatcher;
 import com.mojang.brigadier.arguments.StringArgumentType;
 import com.mojang.brigadier.context.CommandContext;
+import net.fabricmc.fabric.api.networking.v1.ServerPlayConnectionEvents;
 import net.minecraft.command.argument.EntityArgumentType;
+import net.minecraft.nbt.NbtCompound;
+import net.minecraft.nbt.NbtElement;
+import net.minecraft.nbt.NbtList;
+import net.minecraft.scoreboard.Team;
+import net.minecraft.server.MinecraftServer;
 import net.minecraft.server.command.CommandManager;
 import net.minecraft.server.command.ServerCommandSource;
 import net.minecraft.server.network.ServerPlayerEntity;
 import net.minecraft.text.Text;
+import net.minecraft.util.Formatting;
 
 import java.util.*;
-import java.util.concurrent.ConcurrentHashMap;
 
 public class TeamSetCommand {
 
-    // 存储玩家所在组的映射: UUID -> 组颜色
-    private static final ConcurrentHashMap<UUID, String> playerTeams = new ConcurrentHashMap<>();
-
-    // 存储原版队伍名称映射
-    private static final Map<String, String> VANILLA_TEAM_COLOR_MAP = new HashMap<>();
-
-    // 定义7个组的颜色和显示名称
-    public static final Map<String, TeamInfo> TEAM_COLORS = new LinkedHashMap<>();
-
-    static {
-        // 初始化7个组的颜色
-        TEAM_COLORS.put("red", new TeamInfo("红色", "red", "§c"));
-        TEAM_COLORS.put("orange", new TeamInfo("橙色", "gold", "§6"));
-        TEAM_COLORS.put("yellow", new TeamInfo("黄色", "yellow", "§e"));
-        TEAM_COLORS.put("green", new TeamInfo("绿色", "green", "§a"));
-        TEAM_COLORS.put("cyan", new TeamInfo("青色", "aqua", "§b"));
-        TEAM_COLORS.put("blue", new TeamInfo("蓝色", "blue", "§9"));
-        TEAM_COLORS.put("purple", new TeamInfo("紫色", "light_purple", "§d"));
-
-        // 初始化原版颜色映射
-        VANILLA_TEAM_COLOR_MAP.put("red", "red");
-        VANILLA_TEAM_COLOR_MAP.put("orange", "gold");
-        VANILLA_TEAM_COLOR_MAP.put("yellow", "yellow");
-        VANILLA_TEAM_COLOR_MAP.put("green", "green");
-        VANILLA_TEAM_COLOR_MAP.put("cyan", "aqua");
-        VANILLA_TEAM_COLOR_MAP.put("blue", "blue");
-        VANILLA_TEAM_COLOR_MAP.put("purple", "light_purple");
+    // 玩家分组索引: UUID -> 分组编号，以及分组编号 -> 成员
+    private static final TeamIndex teamIndex = new TeamIndex(TeamDefinitions.count());
+
+    // 比赛开始时队伍出生点的确定方式
+    public enum SpawnPolicy {
+        // 传送到队伍所有玩家坐标的平均值
+        AVERAGE,
+        // 留在各自选定的位置
+        INDIVIDUAL
     }
 
+    /**
+     * 分组定义（由 TeamDefinitions 从配置文件加载，创建后不再修改）
+     */
     public static class TeamInfo {
+        private final int index;
+        private final String id;
         private final String displayName;
-        private final String vanillaColor;
-        private final String colorCode;
-
-        public TeamInfo(String displayName, String vanillaColor, String colorCode) {
+        private final Formatting color;
+        private final String prefix;
+        private final int maxSize;
+        private final SpawnPolicy spawnPolicy;
+
+        // 原版队伍使用的文本组件，创建时构建一次
+        private final Text displayText;
+        private final Text prefixText;
+
+        public TeamInfo(int index, String id, String displayName, Formatting color, String prefix,
+                        int maxSize, SpawnPolicy spawnPolicy) {
+            this.index = index;
+            this.id = id;
             this.displayName = displayName;
-            this.vanillaColor = vanillaColor;
-            this.colorCode = colorCode;
+            this.color = color;
+            this.prefix = prefix;
+            this.maxSize = maxSize;
+            this.spawnPolicy = spawnPolicy;
+            this.displayText = Text.literal(displayName + "组").formatted(color);
+            this.prefixText = Text.literal(prefix).formatted(color);
+        }
+
+        // 紧凑编号，用于数组下标
+        public int getIndex() {
+            return index;
+        }
+
+        public String getId() {
+            return id;
         }
 
         public String getDisplayName() {
             return displayName;
         }
 
+        public Formatting getColor() {
+            return color;
+        }
+
         public String getVanillaColor() {
-            return vanillaColor;
+            return color.getName();
         }
 
         public String getColorCode() {
-            return colorCode;
+            return color.toString();
+        }
+
+        public String getPrefix() {
+            return prefix;
+        }
+
+        // 人数上限，0表示不限
+        public int getMaxSize() {
+            return maxSize;
+        }
+
+        public SpawnPolicy getSpawnPolicy() {
+            return spawnPolicy;
+        }
+
+        public Text getDisplayText() {
+            return displayText;
+        }
+
+        public Text getPrefixText() {
+            return prefixText;
         }
     }
 
+    // 自动分组策略
+    public enum AutoStrategy {
+        // 按在线列表顺序，每名玩家放入当前人数最少的组
+        LEAST_FILLED,
+        // 打乱顺序后，每名玩家放入当前人数最少的组
+        RANDOM,
+        // 已经在同一个 FTB 小队（未安装 FTB Teams 时为原版队伍）中的玩家放入同一组
+        KEEP_PAIRS
+    }
+
+    public static void initialize() {
+        // 加载分组定义，失败时使用默认的7个颜色组
+        try {
+            TeamDefinitions.load();
+
+            // 按加载后的分组数量重建索引（此时还没有任何分组成员）
+            teamIndex.remap(new int[0], TeamDefinitions.count());
+        } catch (Exception e) {
+            Competition.LOGGER.error("[分组系统] 加载分组定义失败，使用默认分组: {}", e.getMessage());
+        }
+
+        // 跟踪玩家上下线，保持各组在线人数为最新
+        ServerPlayConnectionEvents.JOIN.register((handler, sender, server) -> {
+            UUID playerId = handler.getPlayer().getUuid();
+            teamIndex.playerJoined(playerId);
+
+            // 离线期间 FTB 小队有变化时，进入服务器后跟随小队分组
+            if (FtbTeamsBridge.isAvailable()) {
+                UUID partyId = FtbTeamsBridge.getPartyId(playerId);
+                if (partyId != null) {
+                    syncParty(server, partyId, false);
+                }
+            }
+        });
+        ServerPlayConnectionEvents.DISCONNECT.register((handler, server) -> teamIndex.playerLeft(handler.getPlayer().getUuid()));
+    }
+
     public static void register(CommandDispatcher<ServerCommandSource> dispatcher) {
         // 设置玩家分组命令
         dispatcher.register(CommandManager.literal("competition")
@@ -75,8 +154,8 @@ public class TeamSetCommand {
                         .then(CommandManager.argument("color", StringArgumentType.string())
                                 .suggests((context, builder) -> {
                                     // 提供颜色建议
-                                    for (String color : TEAM_COLORS.keySet()) {
-                                        builder.suggest(color);
+                                    for (TeamInfo teamInfo : TeamDefinitions.all()) {
+                                        builder.suggest(teamInfo.getId());
                                     }
                                     return builder.buildFuture();
                                 })
@@ -114,6 +193,39 @@ public class TeamSetCommand {
                         .requires(source -> source.hasPermissionLevel(2))
                         .executes(TeamSetCommand::executeTeamInit)
                 )
+                // 将所有未分组的在线玩家自动平均分配到各组
+                .then(CommandManager.literal("teamauto")
+                        .requires(source -> source.hasPermissionLevel(2))
+                        .executes(context -> executeTeamAuto(context, AutoStrategy.LEAST_FILLED))
+                        .then(CommandManager.argument("strategy", StringArgumentType.word())
+                                .suggests((context, builder) -> {
+                                    for (AutoStrategy strategy : AutoStrategy.values()) {
+                                        builder.suggest(strategy.name().toLowerCase());
+                                    }
+                                    return builder.buildFuture();
+                                })
+                                .executes(context -> {
+                                    String strategyName = StringArgumentType.getString(context, "strategy");
+                                    for (AutoStrategy strategy : AutoStrategy.values()) {
+                                        if (strategy.name().equalsIgnoreCase(strategyName)) {
+                                            return executeTeamAuto(context, strategy);
+                                        }
+                                    }
+                                    context.getSource().sendError(Text.literal("§c无效的分组策略！有效策略: least_filled, random, keep_pairs"));
+                                    return 0;
+                                })
+                        )
+                )
+                // 按 FTB 小队分配分组
+                .then(CommandManager.literal("teamsync")
+                        .requires(source -> source.hasPermissionLevel(2))
+                        .executes(TeamSetCommand::executeTeamSync)
+                )
+                // 重新加载分组定义
+                .then(CommandManager.literal("teamreload")
+                        .requires(source -> source.hasPermissionLevel(2))
+                        .executes(TeamSetCommand::executeTeamReload)
+                )
         );
     }
 
@@ -132,75 +244,34 @@ public class TeamSetCommand {
             }
 
             // 检查颜色是否有效
-            if (!TEAM_COLORS.containsKey(color)) {
+            TeamInfo teamInfo = TeamDefinitions.byId(color);
+            if (teamInfo == null) {
                 StringBuilder validColors = new StringBuilder();
-                for (String c : TEAM_COLORS.keySet()) {
+                for (TeamInfo c : TeamDefinitions.all()) {
                     if (!validColors.isEmpty()) {
                         validColors.append(", ");
                     }
-                    validColors.append(c);
+                    validColors.append(c.getId());
                 }
                 source.sendError(Text.literal("§c无效的颜色！有效颜色: " + validColors));
                 return 0;
             }
 
-            // 获取队伍信息
-            TeamInfo teamInfo = TEAM_COLORS.get(color);
-            String teamName = "team_" + color; // 原版队伍名称
-            String displayName = teamInfo.getDisplayName() + "组"; // 显示名称
-
             // 检查玩家是否已经在其他组
-            String previousTeam = playerTeams.get(target.getUuid());
-
-            // 如果玩家之前有分组，先将其从原版队伍中移除
-            if (previousTeam != null) {
-                String previousTeamName = "team_" + previousTeam;
-                String removeCommand = String.format("team leave %s", target.getName().getString());
-                source.getServer().getCommandManager().executeWithPrefix(
-                        source.getServer().getCommandSource(),
-                        removeCommand
-                );
-            }
-
-            // 创建队伍（如果不存在）
-            String createTeamCommand = String.format("team add %s \"%s\"", teamName, displayName);
-            source.getServer().getCommandManager().executeWithPrefix(
-                    source.getServer().getCommandSource(),
-                    createTeamCommand
-            );
-
-            // 设置队伍颜色
-            String colorCommand = String.format("team modify %s color %s", teamName, teamInfo.getVanillaColor());
-            source.getServer().getCommandManager().executeWithPrefix(
-                    source.getServer().getCommandSource(),
-                    colorCommand
-            );
+            TeamInfo prevTeamInfo = TeamDefinitions.get(teamIndex.getTeam(target.getUuid()));
 
-            // 设置队伍显示名称颜色（可选）
-            String displayNameCommand = String.format("team modify %s displayName {\"text\":\"%s组\",\"color\":\"%s\"}",
-                    teamName, teamInfo.getDisplayName(), teamInfo.getVanillaColor());
-            source.getServer().getCommandManager().executeWithPrefix(
-                    source.getServer().getCommandSource(),
-                    displayNameCommand
-            );
-
-            // 设置队伍成员前缀（可选）
-            String prefixCommand = String.format("team modify %s prefix {\"text\":\"[%s组] \",\"color\":\"%s\"}",
-                    teamName, teamInfo.getDisplayName(), teamInfo.getVanillaColor());
-            source.getServer().getCommandManager().executeWithPrefix(
-                    source.getServer().getCommandSource(),
-                    prefixCommand
-            );
+            // 检查人数上限
+            if (prevTeamInfo != teamInfo && isTeamFull(teamInfo, 1)) {
+                source.sendError(Text.literal("§c" + teamInfo.getDisplayName() + "组已满（上限 " + teamInfo.getMaxSize() + " 人）！"));
+                return 0;
+            }
 
-            // 将玩家加入队伍
-            String joinCommand = String.format("team join %s %s", teamName, target.getName().getString());
-            source.getServer().getCommandManager().executeWithPrefix(
-                    source.getServer().getCommandSource(),
-                    joinCommand
-            );
+            // 将玩家加入原版队伍（队伍不存在时创建，加入时会自动离开之前的队伍）
+            CompetitionTeams.joinTeam(source.getServer(), target, teamInfo);
 
             // 更新内存映射
-            playerTeams.put(target.getUuid(), color);
+            teamIndex.set(target.getUuid(), teamInfo.getIndex());
+            CompetitionState.markChanged();
 
             // 给目标玩家发送通知
             String teamColorCode = teamInfo.getColorCode();
@@ -209,9 +280,8 @@ public class TeamSetCommand {
             );
 
             // 给发送者反馈
-            if (previousTeam != null) {
+            if (prevTeamInfo != null) {
                 // 如果之前有分组
-                TeamInfo prevTeamInfo = TEAM_COLORS.get(previousTeam);
                 source.sendMessage(
                         Text.literal("§a已将玩家 §e" + target.getName().getString() +
                                 " §a从" + prevTeamInfo.getDisplayName() +
@@ -254,21 +324,20 @@ public class TeamSetCommand {
         // 统计每个组的人数
         Map<String, List<String>> teamPlayers = new LinkedHashMap<>();
 
-        // 初始化所有组
-        for (String color : TEAM_COLORS.keySet()) {
-            teamPlayers.put(color, new ArrayList<>());
+        // 直接从分组索引中取各组的在线成员
+        for (TeamInfo teamInfo : TeamDefinitions.all()) {
+            List<String> names = new ArrayList<>();
+            for (ServerPlayerEntity player : getPlayersInTeam(source, teamInfo)) {
+                names.add(player.getName().getString());
+            }
+            teamPlayers.put(teamInfo.getId(), names);
         }
-        teamPlayers.put("未分组", new ArrayList<>()); // 添加未分组类别
 
-        // 遍历所有在线玩家
-        for (ServerPlayerEntity player : source.getServer().getPlayerManager().getPlayerList()) {
-            String team = playerTeams.get(player.getUuid());
-            if (team != null && TEAM_COLORS.containsKey(team)) {
-                teamPlayers.get(team).add(player.getName().getString());
-            } else {
-                teamPlayers.get("未分组").add(player.getName().getString());
-            }
+        List<String> ungrouped = new ArrayList<>();
+        for (ServerPlayerEntity player : getUngroupedPlayers(source)) {
+            ungrouped.add(player.getName().getString());
         }
+        teamPlayers.put("未分组", ungrouped); // 添加未分组类别
 
         // 显示分组列表
         source.sendMessage(
@@ -277,10 +346,8 @@ public class TeamSetCommand {
         );
 
         boolean hasPlayers = false;
-        for (Map.Entry<String, TeamInfo> entry : TEAM_COLORS.entrySet()) {
-            String color = entry.getKey();
-            TeamInfo teamInfo = entry.getValue();
-            List<String> players = teamPlayers.get(color);
+        for (TeamInfo teamInfo : TeamDefinitions.all()) {
+            List<String> players = teamPlayers.get(teamInfo.getId());
 
             if (!players.isEmpty()) {
                 hasPlayers = true;
@@ -351,7 +418,7 @@ public class TeamSetCommand {
         }
 
         // 获取清除前的分组数量
-        int clearedCount = playerTeams.size();
+        int clearedCount = teamIndex.size();
 
         if (clearedCount == 0) {
             source.sendMessage(Text.literal("§7当前没有设置任何分组"));
@@ -360,25 +427,15 @@ public class TeamSetCommand {
 
         // 将所有玩家从原版队伍中移除
         for (ServerPlayerEntity player : source.getServer().getPlayerManager().getPlayerList()) {
-            String leaveCommand = String.format("team leave %s", player.getName().getString());
-            source.getServer().getCommandManager().executeWithPrefix(
-                    source.getServer().getCommandSource(),
-                    leaveCommand
-            );
+            CompetitionTeams.leaveTeam(source.getServer(), player);
         }
 
         // 删除所有我们创建的队伍
-        for (String color : TEAM_COLORS.keySet()) {
-            String teamName = "team_" + color;
-            String removeTeamCommand = String.format("team remove %s", teamName);
-            source.getServer().getCommandManager().executeWithPrefix(
-                    source.getServer().getCommandSource(),
-                    removeTeamCommand
-            );
-        }
+        CompetitionTeams.removeAllTeams(source.getServer());
 
         // 清除内存映射
-        playerTeams.clear();
+        teamIndex.clear();
+        CompetitionState.markChanged();
 
         // 通知所有玩家
         for (ServerPlayerEntity player : source.getServer().getPlayerManager().getPlayerList()) {
@@ -412,18 +469,12 @@ public class TeamSetCommand {
             }
 
             // 检查玩家是否有分组
-            String previousTeam = playerTeams.remove(target.getUuid());
+            TeamInfo prevTeamInfo = TeamDefinitions.get(teamIndex.remove(target.getUuid()));
+            CompetitionState.markChanged();
 
-            if (previousTeam != null) {
+            if (prevTeamInfo != null) {
                 // 将玩家从原版队伍中移除
-                String leaveCommand = String.format("team leave %s", target.getName().getString());
-                source.getServer().getCommandManager().executeWithPrefix(
-                        source.getServer().getCommandSource(),
-                        leaveCommand
-                );
-
-                // 获取之前的队伍信息
-                TeamInfo prevTeamInfo = TEAM_COLORS.get(previousTeam);
+                CompetitionTeams.leaveTeam(source.getServer(), target);
 
                 // 给目标玩家发送通知
                 target.sendMessage(Text.literal("§6你已从" + prevTeamInfo.getDisplayName() + "组中移除"));
@@ -465,10 +516,9 @@ public class TeamSetCommand {
             }
 
             // 检查玩家分组
-            String team = playerTeams.get(target.getUuid());
+            TeamInfo teamInfo = TeamDefinitions.get(teamIndex.getTeam(target.getUuid()));
 
-            if (team != null) {
-                TeamInfo teamInfo = TEAM_COLORS.get(team);
+            if (teamInfo != null) {
                 String colorCode = teamInfo.getColorCode();
 
                 if (sender == target) {
@@ -510,71 +560,353 @@ public class TeamSetCommand {
         }
 
         try {
-            // 创建所有原版队伍
-            for (Map.Entry<String, TeamInfo> entry : TEAM_COLORS.entrySet()) {
-                String color = entry.getKey();
-                TeamInfo teamInfo = entry.getValue();
-                String teamName = "team_" + color;
-                String displayName = teamInfo.getDisplayName() + "组";
-
-                // 创建队伍
-                String createTeamCommand = String.format("team add %s \"%s\"", teamName, displayName);
-                source.getServer().getCommandManager().executeWithPrefix(
-                        source.getServer().getCommandSource(),
-                        createTeamCommand
-                );
+            long startTime = System.nanoTime();
 
-                // 设置队伍颜色
-                String colorCommand = String.format("team modify %s color %s", teamName, teamInfo.getVanillaColor());
-                source.getServer().getCommandManager().executeWithPrefix(
-                        source.getServer().getCommandSource(),
-                        colorCommand
-                );
+            // 在同一个tick内创建或更新所有原版队伍，已存在且属性一致的队伍不做任何修改
+            int createdCount = CompetitionTeams.ensureAllTeams(source.getServer());
 
-                // 设置队伍显示名称颜色
-                String displayNameCommand = String.format("team modify %s displayName {\"text\":\"%s组\",\"color\":\"%s\"}",
-                        teamName, teamInfo.getDisplayName(), teamInfo.getVanillaColor());
-                source.getServer().getCommandManager().executeWithPrefix(
-                        source.getServer().getCommandSource(),
-                        displayNameCommand
-                );
+            long elapsedMicros = (System.nanoTime() - startTime) / 1000;
+            source.sendMessage(Text.literal("§a所有原版队伍已初始化完成！§7(新建 " + createdCount + " 个，共 " +
+                    TeamDefinitions.count() + " 个，耗时 " + String.format("%.2f", elapsedMicros / 1000.0) + "ms)"));
+            return 1;
+        } catch (Exception e) {
+            source.sendError(Text.literal("§c初始化队伍时出错: " + e.getMessage()));
+            e.printStackTrace();
+            return 0;
+        }
+    }
 
-                // 设置队伍成员前缀
-                String prefixCommand = String.format("team modify %s prefix {\"text\":\"[%s组] \",\"color\":\"%s\"}",
-                        teamName, teamInfo.getDisplayName(), teamInfo.getVanillaColor());
-                source.getServer().getCommandManager().executeWithPrefix(
-                        source.getServer().getCommandSource(),
-                        prefixCommand
-                );
+    private static int executeTeamAuto(CommandContext<ServerCommandSource> context, AutoStrategy strategy) {
+        ServerCommandSource source = context.getSource();
+        ServerPlayerEntity sender = source.getPlayer();
+
+        if (sender == null) {
+            source.sendError(Text.literal("只有玩家可以执行此命令!"));
+            return 0;
+        }
+
+        // 未分组的在线玩家（不包括执行者）
+        List<ServerPlayerEntity> unassigned = getUngroupedPlayers(source);
+        unassigned.remove(sender);
+
+        if (unassigned.isEmpty()) {
+            source.sendMessage(Text.literal("§7当前没有需要分组的玩家"));
+            return 0;
+        }
 
-                // 等待一下避免命令执行过快
-                Thread.sleep(50);
+        // 按策略把玩家分成若干个需要放在一起的小组
+        List<List<ServerPlayerEntity>> groups = new ArrayList<>();
+        switch (strategy) {
+            case RANDOM -> {
+                Collections.shuffle(unassigned);
+                for (ServerPlayerEntity player : unassigned) {
+                    groups.add(List.of(player));
+                }
             }
+            case KEEP_PAIRS -> {
+                Map<String, List<ServerPlayerEntity>> byExistingTeam = new LinkedHashMap<>();
+                for (ServerPlayerEntity player : unassigned) {
+                    String groupKey = getExistingTeamKey(source, player);
+                    if (groupKey != null) {
+                        byExistingTeam.computeIfAbsent(groupKey, k -> new ArrayList<>()).add(player);
+                    } else {
+                        groups.add(List.of(player));
+                    }
+                }
+                groups.addAll(byExistingTeam.values());
 
-            source.sendMessage(Text.literal("§a所有原版队伍已初始化完成！"));
-            return 1;
+                // 先放人数多的小组，剩下的单人用来补齐
+                groups.sort((a, b) -> Integer.compare(b.size(), a.size()));
+            }
+            default -> {
+                for (ServerPlayerEntity player : unassigned) {
+                    groups.add(List.of(player));
+                }
+            }
+        }
+
+        // 当前各组在线人数和总人数
+        List<TeamInfo> teams = TeamDefinitions.all();
+        int[] teamSizes = new int[teams.size()];
+        int[] memberCounts = new int[teams.size()];
+        for (TeamInfo teamInfo : teams) {
+            teamSizes[teamInfo.getIndex()] = teamIndex.getOnlineMembers(teamInfo.getIndex()).size();
+            memberCounts[teamInfo.getIndex()] = teamIndex.getMemberCount(teamInfo.getIndex());
+        }
+
+        // 每个小组放入当前人数最少且还放得下的组
+        Map<ServerPlayerEntity, TeamInfo> assignments = new LinkedHashMap<>();
+        int skippedCount = 0;
+        for (List<ServerPlayerEntity> group : groups) {
+            TeamInfo target = null;
+            for (TeamInfo teamInfo : teams) {
+                int index = teamInfo.getIndex();
+                boolean hasRoom = teamInfo.getMaxSize() <= 0 || memberCounts[index] + group.size() <= teamInfo.getMaxSize();
+                if (hasRoom && (target == null || teamSizes[index] < teamSizes[target.getIndex()])) {
+                    target = teamInfo;
+                }
+            }
+
+            if (target == null) {
+                skippedCount += group.size();
+                continue;
+            }
+
+            teamSizes[target.getIndex()] += group.size();
+            memberCounts[target.getIndex()] += group.size();
+            for (ServerPlayerEntity player : group) {
+                assignments.put(player, target);
+            }
+        }
+
+        // 在同一个tick内提交所有修改：队伍只创建一次，每个玩家只加入一次队伍
+        CompetitionTeams.ensureAllTeams(source.getServer());
+
+        Map<TeamInfo, Integer> addedCounts = new LinkedHashMap<>();
+        for (Map.Entry<ServerPlayerEntity, TeamInfo> entry : assignments.entrySet()) {
+            ServerPlayerEntity player = entry.getKey();
+            TeamInfo teamInfo = entry.getValue();
+
+            CompetitionTeams.joinTeam(source.getServer(), player, teamInfo);
+            teamIndex.set(player.getUuid(), teamInfo.getIndex());
+            addedCounts.merge(teamInfo, 1, Integer::sum);
+
+            player.sendMessage(
+                    Text.literal(teamInfo.getColorCode() + "你已被分配到" + teamInfo.getDisplayName() + "组！")
+            );
+        }
+
+        CompetitionState.markChanged();
+
+        // 给发送者反馈
+        StringBuilder summary = new StringBuilder();
+        for (Map.Entry<TeamInfo, Integer> entry : addedCounts.entrySet()) {
+            TeamInfo teamInfo = entry.getKey();
+            if (!summary.isEmpty()) {
+                summary.append("§7, ");
+            }
+            summary.append(teamInfo.getColorCode()).append(teamInfo.getDisplayName()).append("组 +").append(entry.getValue());
+        }
+        source.sendMessage(
+                Text.literal("§a已自动分配 §e" + assignments.size() + " §a名玩家 (" + strategy.name().toLowerCase() + "): " + summary)
+        );
+        if (skippedCount > 0) {
+            source.sendMessage(Text.literal("§c所有分组均已满，§e" + skippedCount + " §c名玩家未能分配"));
+        }
+
+        // 记录到控制台
+        source.getServer().sendMessage(
+                Text.literal("[分组系统] " + sender.getName().getString() + " 自动分配了 " +
+                        assignments.size() + " 名玩家，策略: " + strategy.name().toLowerCase())
+        );
+
+        return assignments.size();
+    }
+
+    /**
+     * 玩家已有的队伍：优先使用 FTB 小队缓存，否则使用原版队伍，都没有时返回null
+     */
+    private static String getExistingTeamKey(ServerCommandSource source, ServerPlayerEntity player) {
+        if (FtbTeamsBridge.isAvailable()) {
+            UUID partyId = FtbTeamsBridge.getPartyId(player.getUuid());
+            if (partyId != null) {
+                return "party:" + partyId;
+            }
+        }
+
+        Team vanillaTeam = source.getServer().getScoreboard().getScoreHolderTeam(player.getNameForScoreboard());
+        return vanillaTeam != null ? "team:" + vanillaTeam.getName() : null;
+    }
+
+    private static int executeTeamSync(CommandContext<ServerCommandSource> context) {
+        ServerCommandSource source = context.getSource();
+
+        if (!FtbTeamsBridge.isAvailable()) {
+            source.sendError(Text.literal("§c未安装 FTB Teams，无法同步小队！"));
+            return 0;
+        }
+        if (!canSyncParties()) {
+            source.sendError(Text.literal("§c比赛已经开始，不能再同步小队！"));
+            return 0;
+        }
+
+        int partyCount = 0;
+        int assignedCount = 0;
+        for (UUID partyId : FtbTeamsBridge.getParties()) {
+            int assigned = syncParty(source.getServer(), partyId, true);
+            if (assigned > 0) {
+                partyCount++;
+                assignedCount += assigned;
+            }
+        }
+
+        source.sendMessage(Text.literal("§a已同步 §e" + partyCount + " §a个 FTB 小队，分配了 §e" + assignedCount + " §a名玩家"));
+        return assignedCount;
+    }
+
+    /**
+     * 比赛启动前（包括上一场结束后）才跟随 FTB 小队调整分组，启动流程和比赛中分组固定
+     */
+    private static boolean canSyncParties() {
+        CompetitionPhase phase = CompetitionLifecycle.getPhase();
+        return phase == CompetitionPhase.IDLE || phase == CompetitionPhase.PREPARATION
+                || phase == CompetitionPhase.ENDED;
+    }
+
+    /**
+     * 小队中大多数已分组成员所在的分组，小队成员都没有分组时返回 TeamIndex.NO_TEAM
+     */
+    public static int getPartyTeam(UUID partyId) {
+        int[] counts = new int[TeamDefinitions.count()];
+        int partyTeam = TeamIndex.NO_TEAM;
+        for (UUID playerId : FtbTeamsBridge.getPartyMembers(partyId)) {
+            int index = teamIndex.getTeam(playerId);
+            if (index < 0 || index >= counts.length) {
+                continue;
+            }
+            counts[index]++;
+            if (partyTeam == TeamIndex.NO_TEAM || counts[index] > counts[partyTeam]) {
+                partyTeam = index;
+            }
+        }
+        return partyTeam;
+    }
+
+    /**
+     * 把 FTB 小队的在线成员分配到小队所在的分组（只能在服务器线程调用）
+     *
+     * @param assignNewTeam 小队成员都没有分组时，是否放入当前在线人数最少且放得下整个小队的组
+     * @return 新分配的玩家数
+     */
+    public static int syncParty(MinecraftServer server, UUID partyId, boolean assignNewTeam) {
+        if (!canSyncParties()) {
+            return 0;
+        }
+
+        Set<UUID> members = FtbTeamsBridge.getPartyMembers(partyId);
+        TeamInfo target = TeamDefinitions.get(getPartyTeam(partyId));
+        if (target == null) {
+            if (!assignNewTeam || members.isEmpty()) {
+                return 0;
+            }
+            for (TeamInfo teamInfo : TeamDefinitions.all()) {
+                int size = teamIndex.getOnlineMembers(teamInfo.getIndex()).size();
+                if (!isTeamFull(teamInfo, members.size())
+                        && (target == null || size < teamIndex.getOnlineMembers(target.getIndex()).size())) {
+                    target = teamInfo;
+                }
+            }
+            if (target == null) {
+                return 0;
+            }
+        }
+
+        int assigned = 0;
+        for (UUID playerId : members) {
+            ServerPlayerEntity player = server.getPlayerManager().getPlayer(playerId);
+            if (player == null || teamIndex.getTeam(playerId) == target.getIndex()) {
+                continue;
+            }
+            if (isTeamFull(target, 1)) {
+                server.sendMessage(Text.literal("[分组系统] " + target.getDisplayName() + "组已满，" +
+                        player.getName().getString() + " 未能跟随 FTB 小队分组"));
+                continue;
+            }
+
+            CompetitionTeams.joinTeam(server, player, target);
+            teamIndex.set(playerId, target.getIndex());
+            assigned++;
+
+            player.sendMessage(
+                    Text.literal(target.getColorCode() + "你已跟随 FTB 小队被分配到" + target.getDisplayName() + "组！")
+            );
+            server.sendMessage(Text.literal("[分组系统] " + player.getName().getString() +
+                    " 跟随 FTB 小队分配到" + target.getDisplayName() + "组"));
+        }
+
+        if (assigned > 0) {
+            CompetitionState.markChanged();
+        }
+        return assigned;
+    }
+
+    /**
+     * 玩家离开 FTB 小队（或小队解散）时，如果还在小队所在的分组中则一并移出（只能在服务器线程调用）
+     *
+     * @param partyTeam 小队所在的分组，见 getPartyTeam
+     */
+    public static void partyMemberLeft(MinecraftServer server, UUID playerId, int partyTeam) {
+        if (!canSyncParties() || partyTeam == TeamIndex.NO_TEAM || teamIndex.getTeam(playerId) != partyTeam) {
+            return;
+        }
+
+        TeamInfo teamInfo = TeamDefinitions.get(teamIndex.remove(playerId));
+        CompetitionState.markChanged();
+
+        ServerPlayerEntity player = server.getPlayerManager().getPlayer(playerId);
+        if (player != null) {
+            CompetitionTeams.leaveTeam(server, player);
+            player.sendMessage(Text.literal("§6你已离开 FTB 小队，已从" + teamInfo.getDisplayName() + "组中移除"));
+        }
+        server.sendMessage(Text.literal("[分组系统] " + playerId + " 离开 FTB 小队，已从" +
+                teamInfo.getDisplayName() + "组中移除"));
+    }
+
+    private static int executeTeamReload(CommandContext<ServerCommandSource> context) {
+        ServerCommandSource source = context.getSource();
+        long startTime = System.nanoTime();
+
+        List<TeamInfo> oldTeams = TeamDefinitions.all();
+
+        try {
+            TeamDefinitions.load();
         } catch (Exception e) {
-            source.sendError(Text.literal("§c初始化队伍时出错: " + e.getMessage()));
-            e.printStackTrace();
+            source.sendError(Text.literal("§c重新加载分组定义失败，继续使用原有定义: " + e.getMessage()));
             return 0;
         }
+
+        // 按id把旧编号映射到新编号，已删除分组的成员变为未分组，对应的原版队伍也一并删除
+        int[] oldToNew = new int[oldTeams.size()];
+        for (TeamInfo oldTeam : oldTeams) {
+            TeamInfo newTeam = TeamDefinitions.byId(oldTeam.getId());
+            oldToNew[oldTeam.getIndex()] = newTeam != null ? newTeam.getIndex() : TeamIndex.NO_TEAM;
+            if (newTeam == null) {
+                CompetitionTeams.removeTeam(source.getServer(), oldTeam.getId());
+            }
+        }
+        teamIndex.remap(oldToNew, TeamDefinitions.count());
+        CompetitionState.markChanged();
+
+        // 已存在的原版队伍同步新的颜色、名称和前缀
+        CompetitionTeams.refreshExistingTeams(source.getServer());
+
+        long elapsedMicros = (System.nanoTime() - startTime) / 1000;
+        source.sendMessage(Text.literal("§a已重新加载分组定义，共 §e" + TeamDefinitions.count() + " §a个分组 §7(耗时 " +
+                String.format("%.2f", elapsedMicros / 1000.0) + "ms)"));
+        return TeamDefinitions.count();
+    }
+
+    /**
+     * 分组再加入指定人数后是否超过人数上限
+     */
+    private static boolean isTeamFull(TeamInfo teamInfo, int joining) {
+        return teamInfo.getMaxSize() > 0 && teamIndex.getMemberCount(teamInfo.getIndex()) + joining > teamInfo.getMaxSize();
     }
 
     /**
      * 获取玩家所在分组
      */
     public static String getPlayerTeam(ServerPlayerEntity player) {
-        if (player == null) return null;
-        return playerTeams.get(player.getUuid());
+        TeamInfo teamInfo = getPlayerTeamInfo(player);
+        return teamInfo != null ? teamInfo.getId() : null;
     }
 
     /**
      * 获取玩家所在分组的显示信息
      */
     public static TeamInfo getPlayerTeamInfo(ServerPlayerEntity player) {
-        String team = getPlayerTeam(player);
-        if (team == null) return null;
-        return TEAM_COLORS.get(team);
+        if (player == null) return null;
+        return TeamDefinitions.get(teamIndex.getTeam(player.getUuid()));
     }
 
     /**
@@ -586,13 +918,30 @@ public class TeamSetCommand {
     }
 
     /**
-     * 获取分组中的所有玩家
+     * 获取分组中的所有在线玩家
      */
     public static List<ServerPlayerEntity> getPlayersInTeam(ServerCommandSource source, String teamColor) {
-        List<ServerPlayerEntity> players = new ArrayList<>();
+        TeamInfo teamInfo = TeamDefinitions.byId(teamColor);
+        return teamInfo != null ? getPlayersInTeam(source, teamInfo) : new ArrayList<>();
+    }
 
-        for (ServerPlayerEntity player : source.getServer().getPlayerManager().getPlayerList()) {
-            if (isPlayerInTeam(player, teamColor)) {
+    public static List<ServerPlayerEntity> getPlayersInTeam(ServerCommandSource source, TeamInfo teamInfo) {
+        return resolvePlayers(source, teamIndex.getOnlineMembers(teamInfo.getIndex()));
+    }
+
+    /**
+     * 获取所有未分组的在线玩家
+     */
+    public static List<ServerPlayerEntity> getUngroupedPlayers(ServerCommandSource source) {
+        return resolvePlayers(source, teamIndex.getOnlineUngrouped());
+    }
+
+    private static List<ServerPlayerEntity> resolvePlayers(ServerCommandSource source, Set<UUID> playerIds) {
+        List<ServerPlayerEntity> players = new ArrayList<>(playerIds.size());
+
+        for (UUID playerId : playerIds) {
+            ServerPlayerEntity player = source.getServer().getPlayerManager().getPlayer(playerId);
+            if (player != null) {
                 players.add(player);
             }
         }
@@ -604,31 +953,54 @@ public class TeamSetCommand {
      * 重置所有分组
      */
     public static void resetAllTeams() {
-        playerTeams.clear();
+        teamIndex.clear();
+        CompetitionState.markChanged();
     }
 
     /**
-     * 获取分组统计信息
+     * 保存分组状态（按分组id保存，重新加载分组定义后编号变化也能正确恢复）
      */
-    public static Map<String, Integer> getTeamStatistics(ServerCommandSource source) {
-        Map<String, Integer> stats = new LinkedHashMap<>();
+    static NbtCompound writeState() {
+        NbtList assignments = new NbtList();
+        teamIndex.forEachAssignment((playerId, team) -> {
+            TeamInfo teamInfo = TeamDefinitions.get(team);
+            if (teamInfo != null) {
+                NbtCompound entry = new NbtCompound();
+                entry.putUuid("player", playerId);
+                entry.putString("team", teamInfo.getId());
+                assignments.add(entry);
+            }
+        });
 
-        // 初始化所有组
-        for (String color : TEAM_COLORS.keySet()) {
-            stats.put(color, 0);
-        }
-        stats.put("ungrouped", 0);
+        NbtCompound nbt = new NbtCompound();
+        nbt.put("assignments", assignments);
+        return nbt;
+    }
 
-        // 统计人数
-        for (ServerPlayerEntity player : source.getServer().getPlayerManager().getPlayerList()) {
-            String team = playerTeams.get(player.getUuid());
-            if (team != null && TEAM_COLORS.containsKey(team)) {
-                stats.put(team, stats.get(team) + 1);
-            } else {
-                stats.put("ungrouped", stats.get("ungrouped") + 1);
+    static void readState(NbtCompound nbt) {
+        teamIndex.clear();
+
+        NbtList assignments = nbt.getList("assignments", NbtElement.COMPOUND_TYPE);
+        for (int i = 0; i < assignments.size(); i++) {
+            NbtCompound entry = assignments.getCompound(i);
+            TeamInfo teamInfo = TeamDefinitions.byId(entry.getString("team"));
+            if (teamInfo != null && entry.containsUuid("player")) {
+                teamIndex.set(entry.getUuid("player"), teamInfo.getIndex());
             }
         }
+    }
+
+    /**
+     * 获取分组统计信息（在线人数）
+     */
+    public static Map<String, Integer> getTeamStatistics(ServerCommandSource source) {
+        Map<String, Integer> stats = new LinkedHashMap<>();
+
+        for (TeamInfo teamInfo : TeamDefinitions.all()) {
+            stats.put(teamInfo.getId(), teamIndex.getOnlineMembers(teamInfo.getIndex()).size());
+        }
+        stats.put("ungrouped", teamIndex.getOnlineUngrouped().size());
 
         return stats;
     }
-}
\ No newline at end of file
+}
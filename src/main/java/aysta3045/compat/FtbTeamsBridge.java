@@ -0,0 +1,118 @@
+package aysta3045.compat;
+
+import aysta3045.Competition;
+import net.fabricmc.loader.api.FabricLoader;
+
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * FTB Teams 兼容（可选）
+ * 安装了 FTB Teams 时，通过其队伍事件维护一份 玩家 -> 小队 的缓存，
+ * 比赛逻辑只读这份缓存，不会逐个玩家去查询 FTB Teams；
+ * 比赛启动前小队成员变化会同步到比赛分组（见 TeamSetCommand.syncParty）
+ * 本类不引用任何 FTB Teams 的类，未安装时也可以安全调用
+ */
+public class FtbTeamsBridge {
+
+    private static final String FTB_TEAMS_MOD_ID = "ftbteams";
+
+    private static boolean available = false;
+
+    // 玩家 -> 所在小队
+    private static final Map<UUID, UUID> partyByPlayer = new ConcurrentHashMap<>();
+
+    // 小队 -> 成员
+    private static final Map<UUID, Set<UUID>> membersByParty = new ConcurrentHashMap<>();
+
+    public static void initialize() {
+        if (!FabricLoader.getInstance().isModLoaded(FTB_TEAMS_MOD_ID)) {
+            return;
+        }
+
+        try {
+            FtbTeamsEventHandler.register();
+            available = true;
+            Competition.LOGGER.info("[分组系统] 检测到 FTB Teams，已启用小队同步");
+        } catch (LinkageError e) {
+            Competition.LOGGER.warn("[分组系统] FTB Teams 版本不兼容，小队同步已禁用: {}", e.getMessage());
+        }
+    }
+
+    /**
+     * FTB Teams 是否可用
+     */
+    public static boolean isAvailable() {
+        return available;
+    }
+
+    /**
+     * 获取玩家所在的 FTB 小队，不在小队中时返回null
+     */
+    public static UUID getPartyId(UUID playerId) {
+        return partyByPlayer.get(playerId);
+    }
+
+    /**
+     * 获取小队成员（只读）
+     */
+    public static Set<UUID> getPartyMembers(UUID partyId) {
+        Set<UUID> members = membersByParty.get(partyId);
+        return members != null ? Collections.unmodifiableSet(members) : Collections.emptySet();
+    }
+
+    /**
+     * 获取所有小队（只读）
+     */
+    public static Set<UUID> getParties() {
+        return Collections.unmodifiableSet(membersByParty.keySet());
+    }
+
+    static void setPartyMembers(UUID partyId, Collection<UUID> members) {
+        removeParty(partyId);
+        for (UUID playerId : members) {
+            addMember(partyId, playerId);
+        }
+    }
+
+    static void addMember(UUID partyId, UUID playerId) {
+        UUID previous = partyByPlayer.put(playerId, partyId);
+        if (previous != null && !previous.equals(partyId)) {
+            removeFromParty(previous, playerId);
+        }
+        membersByParty.computeIfAbsent(partyId, k -> ConcurrentHashMap.newKeySet()).add(playerId);
+    }
+
+    static void removeMember(UUID partyId, UUID playerId) {
+        partyByPlayer.remove(playerId, partyId);
+        removeFromParty(partyId, playerId);
+    }
+
+    static void removeParty(UUID partyId) {
+        Set<UUID> members = membersByParty.remove(partyId);
+        if (members != null) {
+            for (UUID playerId : members) {
+                partyByPlayer.remove(playerId, partyId);
+            }
+        }
+    }
+
+    static void clear() {
+        partyByPlayer.clear();
+        membersByParty.clear();
+    }
+
+    private static void removeFromParty(UUID partyId, UUID playerId) {
+        Set<UUID> members = membersByParty.get(partyId);
+        if (members != null) {
+            members.remove(playerId);
+            if (members.isEmpty()) {
+                membersByParty.remove(partyId);
+            }
+        }
+    }
+}
@@ -0,0 +1,97 @@
+package aysta3045.compat;
+
+import aysta3045.command.TeamSetCommand;
+import dev.ftb.mods.ftbteams.api.FTBTeamsAPI;
+import dev.ftb.mods.ftbteams.api.Team;
+import dev.ftb.mods.ftbteams.api.event.TeamEvent;
+import net.fabricmc.fabric.api.event.lifecycle.v1.ServerLifecycleEvents;
+import net.minecraft.server.MinecraftServer;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * FTB Teams 事件监听，只在安装了 FTB Teams 时才会加载这个类
+ */
+class FtbTeamsEventHandler {
+
+    private static MinecraftServer server;
+
+    static void register() {
+        // 服务器启动后根据已有的小队建立缓存
+        ServerLifecycleEvents.SERVER_STARTED.register(startedServer -> {
+            server = startedServer;
+            loadParties();
+        });
+        ServerLifecycleEvents.SERVER_STOPPED.register(stoppedServer -> {
+            server = null;
+            FtbTeamsBridge.clear();
+        });
+
+        // 之后只根据事件增量更新，并把成员变化同步到比赛分组
+        TeamEvent.CREATED.register(event -> {
+            Team team = event.getTeam();
+            if (team.isPartyTeam()) {
+                runOnServer(() -> {
+                    FtbTeamsBridge.setPartyMembers(team.getId(), team.getMembers());
+                    TeamSetCommand.syncParty(server, team.getId(), false);
+                });
+            }
+        });
+        TeamEvent.PLAYER_JOINED_PARTY.register(event -> {
+            UUID partyId = event.getTeam().getId();
+            UUID playerId = event.getPlayer().getUuid();
+            runOnServer(() -> {
+                FtbTeamsBridge.addMember(partyId, playerId);
+                TeamSetCommand.syncParty(server, partyId, false);
+            });
+        });
+        TeamEvent.PLAYER_LEFT_PARTY.register(event -> {
+            UUID partyId = event.getTeam().getId();
+            UUID playerId = event.getPlayerId();
+            runOnServer(() -> {
+                FtbTeamsBridge.removeMember(partyId, playerId);
+                TeamSetCommand.partyMemberLeft(server, playerId, TeamSetCommand.getPartyTeam(partyId));
+            });
+        });
+        TeamEvent.DELETED.register(event -> {
+            UUID partyId = event.getTeam().getId();
+            runOnServer(() -> {
+                // 解散前记下小队所在的分组
+                int partyTeam = TeamSetCommand.getPartyTeam(partyId);
+                List<UUID> members = new ArrayList<>(FtbTeamsBridge.getPartyMembers(partyId));
+                FtbTeamsBridge.removeParty(partyId);
+                for (UUID playerId : members) {
+                    TeamSetCommand.partyMemberLeft(server, playerId, partyTeam);
+                }
+            });
+        });
+    }
+
+    // 分组只能在服务器线程修改；服务器启动前的事件忽略，启动后由 loadParties 重建缓存
+    private static void runOnServer(Runnable task) {
+        MinecraftServer current = server;
+        if (current == null) {
+            return;
+        }
+        if (current.isOnThread()) {
+            task.run();
+        } else {
+            current.execute(task);
+        }
+    }
+
+    private static void loadParties() {
+        if (!FTBTeamsAPI.api().isManagerLoaded()) {
+            return;
+        }
+
+        FtbTeamsBridge.clear();
+        for (Team team : FTBTeamsAPI.api().getManager().getTeams()) {
+            if (team.isPartyTeam()) {
+                FtbTeamsBridge.setPartyMembers(team.getId(), team.getMembers());
+            }
+        }
+    }
+}
@@ -0,0 +1,46 @@
+package aysta3045.mixin;
+
+import aysta3045.command.AdvancementEvents;
+import com.llamalad7.mixinextras.injector.wrapmethod.WrapMethod;
+import com.llamalad7.mixinextras.injector.wrapoperation.Operation;
+import net.minecraft.advancement.AdvancementEntry;
+import net.minecraft.advancement.AdvancementProgress;
+import net.minecraft.advancement.PlayerAdvancementTracker;
+import net.minecraft.server.network.ServerPlayerEntity;
+import org.spongepowered.asm.mixin.Mixin;
+import org.spongepowered.asm.mixin.Shadow;
+
+@Mixin(PlayerAdvancementTracker.class)
+public abstract class PlayerAdvancementTrackerMixin {
+
+    @Shadow
+    private ServerPlayerEntity owner;
+
+    @Shadow
+    public abstract AdvancementProgress getProgress(AdvancementEntry advancement);
+
+    // 包装整个方法，调用前的完成状态保存在局部变量里（成就奖励嵌套授予其他成就、原方法抛出异常都不会互相影响）
+    @WrapMethod(method = "grantCriterion")
+    private boolean wrapGrantCriterion(AdvancementEntry advancement, String criterionName, Operation<Boolean> original) {
+        boolean wasDone = getProgress(advancement).isDone();
+        boolean granted = original.call(advancement, criterionName);
+
+        // 只在成就从未完成变为完成时发布事件
+        if (granted && !wasDone && getProgress(advancement).isDone()) {
+            AdvancementEvents.COMPLETED.invoker().onCompleted(owner, advancement);
+        }
+        return granted;
+    }
+
+    @WrapMethod(method = "revokeCriterion")
+    private boolean wrapRevokeCriterion(AdvancementEntry advancement, String criterionName, Operation<Boolean> original) {
+        boolean wasDone = getProgress(advancement).isDone();
+        boolean revoked = original.call(advancement, criterionName);
+
+        // 只在已完成的成就变为未完成时发布事件
+        if (revoked && wasDone && !getProgress(advancement).isDone()) {
+            AdvancementEvents.REVOKED.invoker().onRevoked(owner, advancement);
+        }
+        return revoked;
+    }
+}
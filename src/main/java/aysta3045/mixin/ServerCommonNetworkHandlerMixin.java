@@ -0,0 +1,27 @@
+package aysta3045.mixin;
+
+import aysta3045.command.PlayerBatch;
+import net.minecraft.network.PacketCallbacks;
+import net.minecraft.network.packet.Packet;
+import net.minecraft.server.network.ServerCommonNetworkHandler;
+import org.jetbrains.annotations.Nullable;
+import org.spongepowered.asm.mixin.Mixin;
+import org.spongepowered.asm.mixin.injection.At;
+import org.spongepowered.asm.mixin.injection.Inject;
+import org.spongepowered.asm.mixin.injection.callback.CallbackInfo;
+
+@Mixin(ServerCommonNetworkHandler.class)
+public abstract class ServerCommonNetworkHandlerMixin {
+
+    // 批量执行玩家操作期间，发给该玩家的数据包先暂存，之后合并发送
+    @Inject(
+            method = "send",
+            at = @At("HEAD"),
+            cancellable = true
+    )
+    private void onSend(Packet<?> packet, @Nullable PacketCallbacks callbacks, CallbackInfo ci) {
+        if (PlayerBatch.capture((ServerCommonNetworkHandler) (Object) this, packet, callbacks)) {
+            ci.cancel();
+        }
+    }
+}
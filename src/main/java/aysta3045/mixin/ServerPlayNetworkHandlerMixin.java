@@ -1,10 +1,18 @@
 package aysta3045.mixin;
 
 import aysta3045.command.CloseCommandsCommand;
+import aysta3045.command.PlayerFreeze;
 import net.minecraft.network.packet.c2s.play.CommandExecutionC2SPacket;
+import net.minecraft.network.packet.c2s.play.PlayerActionC2SPacket;
+import net.minecraft.network.packet.c2s.play.PlayerInteractBlockC2SPacket;
+import net.minecraft.network.packet.c2s.play.PlayerInteractEntityC2SPacket;
+import net.minecraft.network.packet.c2s.play.PlayerInteractItemC2SPacket;
+import net.minecraft.network.packet.c2s.play.PlayerMoveC2SPacket;
 import net.minecraft.server.network.ServerPlayNetworkHandler;
 import net.minecraft.server.network.ServerPlayerEntity;
 import net.minecraft.text.Text;
+import net.minecraft.util.math.Vec3d;
+import org.jetbrains.annotations.Nullable;
 import org.spongepowered.asm.mixin.Mixin;
 import org.spongepowered.asm.mixin.Shadow;
 import org.spongepowered.asm.mixin.injection.At;
@@ -14,9 +22,20 @@ import org.spongepowered.asm.mixin.injection.callback.CallbackInfo;
 @Mixin(ServerPlayNetworkHandler.class)
 public abstract class ServerPlayNetworkHandlerMixin {
 
+    // 数据包切换到服务器线程之后（第一次调用在网络线程上，会被重新提交到服务器线程）
+    private static final String FORCE_MAIN_THREAD =
+            "Lnet/minecraft/network/NetworkThreadUtils;forceMainThread(Lnet/minecraft/network/packet/Packet;Lnet/minecraft/network/listener/PacketListener;Lnet/minecraft/server/world/ServerWorld;)V";
+
     @Shadow
     public ServerPlayerEntity player;
 
+    @Shadow
+    @Nullable
+    private Vec3d requestedTeleportPos;
+
+    @Shadow
+    public abstract void requestTeleport(double x, double y, double z, float yaw, float pitch);
+
     @Inject(
             method = "onCommandExecution",
             at = @At("HEAD"),
@@ -40,6 +59,79 @@ public abstract class ServerPlayNetworkHandlerMixin {
         }
     }
 
+    // 被冻结的玩家只能转动视角，离开冻结位置时拉回
+    @Inject(
+            method = "onPlayerMove",
+            at = @At(value = "INVOKE", target = FORCE_MAIN_THREAD, shift = At.Shift.AFTER),
+            cancellable = true
+    )
+    private void onFrozenPlayerMove(PlayerMoveC2SPacket packet, CallbackInfo ci) {
+        Vec3d frozenPos = PlayerFreeze.getFrozenPosition(player);
+        if (frozenPos == null || !packet.changesPosition()) {
+            return;
+        }
+
+        double dx = packet.getX(frozenPos.x) - frozenPos.x;
+        double dy = packet.getY(frozenPos.y) - frozenPos.y;
+        double dz = packet.getZ(frozenPos.z) - frozenPos.z;
+        if (dx * dx + dy * dy + dz * dz < 1.0E-4) {
+            return;
+        }
+
+        ci.cancel();
+
+        // 已经在等待客户端确认上一次拉回时不重复发送
+        if (requestedTeleportPos == null) {
+            requestTeleport(frozenPos.x, frozenPos.y, frozenPos.z,
+                    packet.getYaw(player.getYaw()), packet.getPitch(player.getPitch()));
+        }
+    }
+
+    @Inject(
+            method = "onPlayerInteractBlock",
+            at = @At(value = "INVOKE", target = FORCE_MAIN_THREAD, shift = At.Shift.AFTER),
+            cancellable = true
+    )
+    private void onFrozenInteractBlock(PlayerInteractBlockC2SPacket packet, CallbackInfo ci) {
+        if (PlayerFreeze.isFrozen(player)) {
+            ci.cancel();
+        }
+    }
+
+    @Inject(
+            method = "onPlayerInteractItem",
+            at = @At(value = "INVOKE", target = FORCE_MAIN_THREAD, shift = At.Shift.AFTER),
+            cancellable = true
+    )
+    private void onFrozenInteractItem(PlayerInteractItemC2SPacket packet, CallbackInfo ci) {
+        if (PlayerFreeze.isFrozen(player)) {
+            ci.cancel();
+        }
+    }
+
+    @Inject(
+            method = "onPlayerInteractEntity",
+            at = @At(value = "INVOKE", target = FORCE_MAIN_THREAD, shift = At.Shift.AFTER),
+            cancellable = true
+    )
+    private void onFrozenInteractEntity(PlayerInteractEntityC2SPacket packet, CallbackInfo ci) {
+        if (PlayerFreeze.isFrozen(player)) {
+            ci.cancel();
+        }
+    }
+
+    // 挖掘、丢弃物品、交换副手
+    @Inject(
+            method = "onPlayerAction",
+            at = @At(value = "INVOKE", target = FORCE_MAIN_THREAD, shift = At.Shift.AFTER),
+            cancellable = true
+    )
+    private void onFrozenPlayerAction(PlayerActionC2SPacket packet, CallbackInfo ci) {
+        if (PlayerFreeze.isFrozen(player)) {
+            ci.cancel();
+        }
+    }
+
     private boolean isAllowedCommand(String command) {
         if (command == null || command.trim().isEmpty()) {
             return false;
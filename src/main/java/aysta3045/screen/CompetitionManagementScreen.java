@@ -391,7 +391,7 @@ public class CompetitionManagementScreen extends HandledScreen<CompetitionManage
                         Text.literal("§a启动60秒出生点选择，然后开始比赛"),
                         mouseX + 10, mouseY + 15);
                 context.drawTooltip(this.textRenderer,
-                        Text.literal("§e右键点击：取消比赛启动流程"),
+                        Text.literal("§e右键点击：取消准备阶段或比赛启动流程"),
                         mouseX + 10, mouseY + 30);
             }
         }
@@ -417,7 +417,7 @@ public class CompetitionManagementScreen extends HandledScreen<CompetitionManage
                         Text.literal("§a左键点击：开始倒计时（3小时30分钟）"),
                         mouseX, mouseY);
                 context.drawTooltip(this.textRenderer,
-                        Text.literal("§e右键点击：停止倒计时"),
+                        Text.literal("§e右键点击：停止倒计时并结束比赛"),
                         mouseX + 10, mouseY + 15);
                 context.drawTooltip(this.textRenderer,
                         Text.literal("§7Shift+左键：检查倒计时状态"),
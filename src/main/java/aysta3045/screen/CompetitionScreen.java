@@ -9,6 +9,8 @@ import net.minecraft.item.Items;
 import net.minecraft.item.ItemStack;
 import net.minecraft.component.DataComponentTypes;
 
+import java.util.List;
+
 public class CompetitionScreen extends HandledScreen<CompetitionScreenHandler> {
     // 使用原版箱子纹理
     private static final Identifier TEXTURE =
@@ -83,10 +85,19 @@ public class CompetitionScreen extends HandledScreen<CompetitionScreenHandler> {
         // 检查鼠标是否悬停在指南针上
         if (isMouseOverCompass(mouseX, mouseY)) {
             // 绘制工具提示
-            context.drawTooltip(this.textRenderer, Text.literal("左键点击打开比赛管理"), mouseX, mouseY);
+            context.drawTooltip(this.textRenderer, List.of(
+                    Text.literal("左键点击打开比赛管理"),
+                    Text.literal("§7倒计时: " + formatRunning(this.handler.isCountdownRunning())),
+                    Text.literal("§7末地门框架监听: " + formatRunning(this.handler.isPortalMonitorRunning())),
+                    Text.literal("§7末影龙击杀监听: " + formatRunning(this.handler.isDragonMonitorRunning()))
+            ), mouseX, mouseY);
         }
     }
 
+    private static String formatRunning(boolean running) {
+        return running ? "§a运行中" : "§c未运行";
+    }
+
     /**
      * 检查鼠标是否悬停在指南针上
      */
@@ -104,6 +115,11 @@ public class CompetitionScreen extends HandledScreen<CompetitionScreenHandler> {
         // 绘制玩家库存标签
         context.drawText(this.textRenderer, this.playerInventoryTitle,
                 this.playerInventoryTitleX, this.playerInventoryTitleY, 0x404040, false);
+
+        // 绘制当前比赛阶段（由服务器同步）
+        Text phaseText = Text.literal("阶段: " + this.handler.getPhase().getDisplayName());
+        context.drawText(this.textRenderer, phaseText,
+                this.backgroundWidth - 8 - this.textRenderer.getWidth(phaseText), this.playerInventoryTitleY, 0x404040, false);
     }
 
     @Override
@@ -1,32 +1,92 @@
 package aysta3045.screen;
 
 import aysta3045.Competition;
+import aysta3045.command.CompetitionLifecycle;
+import aysta3045.command.CompetitionPhase;
 import net.minecraft.entity.player.PlayerEntity;
 import net.minecraft.entity.player.PlayerInventory;
 import net.minecraft.inventory.Inventory;
 import net.minecraft.inventory.SimpleInventory;
 import net.minecraft.item.ItemStack;
+import net.minecraft.screen.ArrayPropertyDelegate;
+import net.minecraft.screen.PropertyDelegate;
 import net.minecraft.screen.ScreenHandler;
 import net.minecraft.screen.slot.Slot;
 
 public class CompetitionScreenHandler extends ScreenHandler {
+    // 比赛状态打包为一个属性同步到客户端：低3位为阶段序号，之后依次为倒计时、框架监听、末影龙监听是否运行
+    private static final int COUNTDOWN_BIT = 1 << 3;
+    private static final int PORTAL_MONITOR_BIT = 1 << 4;
+    private static final int DRAGON_MONITOR_BIT = 1 << 5;
+
     private final Inventory inventory;
+    private final PropertyDelegate status;
 
-    // 主构造器
+    // 主构造器（客户端使用，状态由服务器同步）
     public CompetitionScreenHandler(int syncId, PlayerInventory playerInventory) {
-        this(syncId, playerInventory, new SimpleInventory(27));
+        this(syncId, playerInventory, new ArrayPropertyDelegate(1));
+    }
+
+    // 服务器端构造器，传入读取比赛状态的属性
+    public CompetitionScreenHandler(int syncId, PlayerInventory playerInventory, PropertyDelegate status) {
+        this(syncId, playerInventory, new SimpleInventory(27), status);
     }
 
     // 私有构造器
-    private CompetitionScreenHandler(int syncId, PlayerInventory playerInventory, Inventory inventory) {
+    private CompetitionScreenHandler(int syncId, PlayerInventory playerInventory, Inventory inventory, PropertyDelegate status) {
         super(Competition.COMPETITION_SCREEN_HANDLER, syncId);
         this.inventory = inventory;
+        this.status = status;
 
         // 检查库存大小
         checkSize(inventory, 27);
+        checkDataCount(status, 1);
         inventory.onOpen(playerInventory.player);
 
         setupSlots(inventory, playerInventory);
+        addProperties(status);
+    }
+
+    /**
+     * 服务器端的比赛状态属性，每次同步时读取一次当前快照
+     */
+    public static PropertyDelegate createStatusDelegate() {
+        return new PropertyDelegate() {
+            @Override
+            public int get(int index) {
+                CompetitionLifecycle.Snapshot snapshot = CompetitionLifecycle.snapshot();
+                int value = snapshot.phase().ordinal();
+                if (snapshot.countdownRunning()) value |= COUNTDOWN_BIT;
+                if (snapshot.portalMonitorRunning()) value |= PORTAL_MONITOR_BIT;
+                if (snapshot.dragonMonitorRunning()) value |= DRAGON_MONITOR_BIT;
+                return value;
+            }
+
+            @Override
+            public void set(int index, int value) {
+            }
+
+            @Override
+            public int size() {
+                return 1;
+            }
+        };
+    }
+
+    public CompetitionPhase getPhase() {
+        return CompetitionPhase.byOrdinal(status.get(0) & 0x7);
+    }
+
+    public boolean isCountdownRunning() {
+        return (status.get(0) & COUNTDOWN_BIT) != 0;
+    }
+
+    public boolean isPortalMonitorRunning() {
+        return (status.get(0) & PORTAL_MONITOR_BIT) != 0;
+    }
+
+    public boolean isDragonMonitorRunning() {
+        return (status.get(0) & DRAGON_MONITOR_BIT) != 0;
     }
 
     private void setupSlots(Inventory inventory, PlayerInventory playerInventory) {